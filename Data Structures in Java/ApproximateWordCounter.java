@@ -0,0 +1,129 @@
+import java.util.Random;
+
+/**
+ * Represents a word counter that works in a fixed amount of memory, however large the corpus is.
+ * Frequency counts are estimated by a Count-Min Sketch and the most frequent words are tracked by
+ * a Space-Saving summary.
+ *
+ * The trade-off between accuracy and memory is set by three parameters:
+ * - epsilon: a count is overestimated by more than epsilon * N with probability at most delta,
+ *   where N is the total number of words counted. The sketch takes about 8 * e / epsilon bytes per row.
+ * - delta: the sketch has ln(1 / delta) rows, so halving the failure probability adds a row.
+ * - capacity: the summary keeps capacity words, about 100 bytes each. Every word occurring more than
+ *   N / capacity times is tracked, and the most frequent words are reported correctly as long as
+ *   their counts differ by more than N / capacity.
+ * The least frequent words cannot be answered in bounded memory, since rare words are not kept.
+ */
+public class ApproximateWordCounter implements WordCounter {
+    private final CountMinSketch sketch; // Estimates the frequency count of any word
+    private final SpaceSaving heavyHitters; // Tracks the most frequent words
+
+    /**
+     * Constructs an approximate counter for the given error bounds.
+     *
+     * @param epsilon The maximum overestimate of a count, as a fraction of the total number of words counted.
+     * @param delta The probability of a count exceeding the maximum overestimate.
+     * @param capacity The number of frequent words to track.
+     */
+    public ApproximateWordCounter(double epsilon, double delta, int capacity) {
+        this.sketch = new CountMinSketch(epsilon, delta);
+        this.heavyHitters = new SpaceSaving(capacity);
+    }
+
+    @Override
+    public void count(char[] buf, int len, int hash) {
+        sketch.add(buf, len);
+        heavyHitters.add(buf, len, hash);
+    }
+
+    /**
+     * Returns the estimated frequency count of a word.
+     *
+     * @param word The word to estimate the frequency count of.
+     * @return an estimate that is never below the true count
+     */
+    public long getCount(String word) {
+        return sketch.estimate(word);
+    }
+
+    /**
+     * Returns the tracked words with the highest counts.
+     *
+     * @param k The maximum number of words to return, capped at the capacity of the counter.
+     * @return at most k words, most frequent first
+     */
+    public String[] mostFrequent(int k) {
+        return heavyHitters.mostFrequent(k);
+    }
+
+    /**
+     * Counts a synthetic Zipfian corpus both exactly and approximately,
+     * and checks the approximate counts against the error bounds.
+     *
+     * @param distinct The number of distinct words in the corpus.
+     * @param tokens The number of words in the corpus.
+     * @param skew The Zipf exponent, the word of rank r occurs with probability proportional to 1 / r^skew.
+     * @param epsilon The epsilon of the approximate counter.
+     * @param delta The delta of the approximate counter.
+     * @param capacity The capacity of the approximate counter.
+     * @return true if every bound holds, false otherwise
+     */
+    public static boolean testErrorBounds(int distinct, int tokens, double skew,
+                                          double epsilon, double delta, int capacity) {
+        WordTable exact = new WordTable();
+        ApproximateWordCounter approximate = new ApproximateWordCounter(epsilon, delta, capacity);
+        WordScanner exactScanner = new WordScanner(exact);
+        WordScanner approximateScanner = new WordScanner(approximate);
+        DataGenerator.ZipfSampler sampler = new DataGenerator.ZipfSampler(distinct, skew, new Random(42));
+        for (int i = 0; i < tokens; i++) {
+            String word = DataGenerator.syntheticWord(sampler.next());
+            exactScanner.scan(word);
+            exactScanner.endWord();
+            approximateScanner.scan(word);
+            approximateScanner.endWord();
+        }
+
+        boolean passed = true;
+        double sketchBound = epsilon * tokens;
+        double summaryBound = (double) tokens / capacity;
+        int overBound = 0;
+        for (int i = 0; i < exact.size(); i++) {
+            String word = exact.wordAt(i);
+            int count = exact.countAt(i);
+            long estimate = approximate.getCount(word);
+            if (estimate < count) {
+                System.out.println("Error: estimate of '" + word + "' is below its count");
+                passed = false;
+            }
+            if (estimate - count > sketchBound) {
+                overBound++;
+            }
+            if (count > summaryBound) {
+                int tracked = approximate.heavyHitters.getCount(word);
+                if (tracked < count || tracked - count > summaryBound) {
+                    System.out.println("Error: frequent word '" + word + "' is not tracked within bounds");
+                    passed = false;
+                }
+            }
+        }
+        double overFraction = (double) overBound / exact.size();
+        if (overFraction > delta) {
+            System.out.println("Error: " + overBound + " estimates exceed epsilon * N, more than delta allows");
+            passed = false;
+        }
+
+        System.out.printf("%d words, %d distinct: %.4f of estimates exceed epsilon * N (delta = %.4f), "
+                        + "sketch uses %d bytes. %s%n", tokens, exact.size(), overFraction, delta,
+                approximate.sketch.memoryBytes(), passed ? "Passed." : "Failed.");
+        return passed;
+    }
+
+    /**
+     * Demonstrates the error bounds on a synthetic corpus.
+     *
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        ApproximateWordCounter.testErrorBounds(100_000, 2_000_000, 1.1, 0.0005, 0.01, 1000);
+    }
+}
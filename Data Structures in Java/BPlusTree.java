@@ -0,0 +1,765 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Represents a B+-tree of contacts ordered by last name, ignoring case.
+ * Each node holds up to fan-out keys in a sorted array that is binary searched, so a lookup touches
+ * about log(n) / log(fan-out) nodes instead of the log2(n) nodes of a binary search tree, each of them
+ * a short run of contiguous memory. Contacts are only stored in the leaves, which are linked in key order,
+ * so in-order and range scans walk the leaves without going back up the tree.
+ * Contacts sharing a last name are told apart by the order they were inserted in, which keeps every key unique.
+ */
+public class BPlusTree implements ContactIndex {
+    private static final int DEFAULT_FAN_OUT = 64; // Number of children of a full internal node by default
+
+    /**
+     * This class represents the contact info stored in a leaf.
+     */
+    private static class Contact {
+        private final String firstName; // First name of the contact
+        private final String lastName; // Last name of the contact
+        private final String phoneNumber; // Phone number of the contact
+        private final String emailAddress; // Email address of the contact
+
+        /**
+         * Constructs a contact with the given contact info.
+         * @param firstName The first name of the contact.
+         * @param lastName The last name of the contact.
+         * @param phoneNumber The phone number of the contact.
+         * @param emailAddress The email address of the contact.
+         */
+        private Contact(String firstName, String lastName, String phoneNumber, String emailAddress) {
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.phoneNumber = phoneNumber;
+            this.emailAddress = emailAddress;
+        }
+
+        /**
+         * Returns a string representation of the contact, in the same format as BST.
+         * @return A string representation of the contact.
+         */
+        @Override
+        public String toString() {
+            return firstName + "," + lastName + "," + phoneNumber + "," + emailAddress;
+        }
+    }
+
+    /**
+     * This class represents a node of the tree. A key is a last name with the sequence number of its insertion.
+     * An internal node holds size keys and size + 1 children, where every key of child i is lower than key i
+     * and every key of child i + 1 is higher or equal. A leaf holds size keys with their contacts.
+     */
+    private static class Node {
+        private final String[] names; // The last names of the keys, sorted ignoring case
+        private final long[] sequences; // The sequence numbers of the keys, breaking ties between equal names
+        private final Node[] children; // The children of an internal node, or null for a leaf
+        private final Contact[] contacts; // The contacts of a leaf, or null for an internal node
+        private Node next; // The next leaf in key order, or null
+        private int size; // The number of keys
+
+        /**
+         * Constructs an empty node with room for one key more than the maximum, so a node can split after inserting.
+         * @param leaf True for a leaf, false for an internal node.
+         * @param capacity The maximum number of keys of the node.
+         */
+        private Node(boolean leaf, int capacity) {
+            this.names = new String[capacity + 1];
+            this.sequences = new long[capacity + 1];
+            this.children = leaf ? null : new Node[capacity + 2];
+            this.contacts = leaf ? new Contact[capacity + 1] : null;
+        }
+
+        /**
+         * Checks if the node is a leaf.
+         * @return True if the node is a leaf, false otherwise.
+         */
+        private boolean isLeaf() {
+            return children == null;
+        }
+    }
+
+    private final int fanOut; // The maximum number of children of an internal node and of contacts of a leaf
+    private Node root; // The root node of the tree
+    private long nextSequence; // The sequence number given to the next inserted contact
+    private String splitName; // The last name of the key separating the halves of the last split node
+    private long splitSequence; // The sequence number of the key separating the halves of the last split node
+
+    /**
+     * Constructs an empty B+-tree with the default fan-out.
+     */
+    public BPlusTree() {
+        this(DEFAULT_FAN_OUT);
+    }
+
+    /**
+     * Constructs an empty B+-tree.
+     * @param fanOut The maximum number of children of an internal node and of contacts of a leaf, at least 3.
+     */
+    public BPlusTree(int fanOut) {
+        if (fanOut < 3) {
+            throw new IllegalArgumentException("fan-out must be at least 3");
+        }
+        this.fanOut = fanOut;
+        this.root = new Node(true, fanOut);
+        this.nextSequence = 0;
+    }
+
+    /**
+     * Compares the key of a node with a key, ordering by last name ignoring case, then by sequence number.
+     * @param node The node holding the key.
+     * @param i The index of the key in the node.
+     * @param name The last name of the other key.
+     * @param sequence The sequence number of the other key.
+     * @return A negative number, zero or a positive number as the key of the node is lower, equal or higher.
+     */
+    private static int compare(Node node, int i, String name, long sequence) {
+        int c = node.names[i].compareToIgnoreCase(name);
+        return c != 0 ? c : Long.compare(node.sequences[i], sequence);
+    }
+
+    /**
+     * Binary searches a node for the first key higher than the given key.
+     * In an internal node this is the index of the child whose keys range covers the given key.
+     * @param node The node to search.
+     * @param name The last name of the key.
+     * @param sequence The sequence number of the key.
+     * @return The index of the first higher key, or the size of the node if there is none.
+     */
+    private static int upperBound(Node node, String name, long sequence) {
+        int lo = 0;
+        int hi = node.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(node, mid, name, sequence) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the maximum number of keys of a node.
+     * @param node The node.
+     * @return The maximum number of keys.
+     */
+    private int maxKeys(Node node) {
+        return node.isLeaf() ? fanOut : fanOut - 1;
+    }
+
+    /**
+     * Inserts a new contact with the given contact information into the tree.
+     * @param firstName The first name of the contact.
+     * @param lastName The last name of the contact.
+     * @param phoneNumber The phone number of the contact.
+     * @param emailAddress The email address of the contact.
+     */
+    @Override
+    public void insert(String firstName, String lastName, String phoneNumber, String emailAddress) {
+        if (!ContactIndex.isValidInput(firstName, lastName, phoneNumber, emailAddress)) {
+            System.err.println("Invalid input data.");
+            return;
+        }
+        Contact contact = new Contact(firstName, lastName, phoneNumber, emailAddress);
+        Node right = insert(root, lastName, nextSequence++, contact);
+        if (right != null) { // The root was split, the tree grows by one level
+            Node newRoot = new Node(false, fanOut - 1);
+            newRoot.names[0] = splitName;
+            newRoot.sequences[0] = splitSequence;
+            newRoot.children[0] = root;
+            newRoot.children[1] = right;
+            newRoot.size = 1;
+            root = newRoot;
+        }
+    }
+
+    /**
+     * Recursively inserts a key and its contact into the subtree rooted at the given node.
+     * @param node The root node of the subtree.
+     * @param name The last name of the key.
+     * @param sequence The sequence number of the key.
+     * @param contact The contact to insert.
+     * @return The new right sibling if the node was split, with its separating key in splitName and splitSequence,
+     * or null if the node was not split.
+     */
+    private Node insert(Node node, String name, long sequence, Contact contact) {
+        int i = upperBound(node, name, sequence);
+        if (node.isLeaf()) {
+            insertKey(node, i, name, sequence);
+            System.arraycopy(node.contacts, i, node.contacts, i + 1, node.size - i - 1);
+            node.contacts[i] = contact;
+        } else {
+            Node right = insert(node.children[i], name, sequence, contact);
+            if (right == null) {
+                return null;
+            }
+            insertKey(node, i, splitName, splitSequence);
+            System.arraycopy(node.children, i + 1, node.children, i + 2, node.size - i - 1);
+            node.children[i + 1] = right;
+        }
+        return node.size > maxKeys(node) ? split(node) : null;
+    }
+
+    /**
+     * Inserts a key into a node at the given index, shifting the later keys up by one.
+     * @param node The node.
+     * @param i The index of the new key.
+     * @param name The last name of the key.
+     * @param sequence The sequence number of the key.
+     */
+    private static void insertKey(Node node, int i, String name, long sequence) {
+        System.arraycopy(node.names, i, node.names, i + 1, node.size - i);
+        System.arraycopy(node.sequences, i, node.sequences, i + 1, node.size - i);
+        node.names[i] = name;
+        node.sequences[i] = sequence;
+        node.size++;
+    }
+
+    /**
+     * Moves the upper half of an overfull node into a new right sibling.
+     * A leaf keeps a copy of its separating key as the first key of the sibling,
+     * an internal node hands its middle key up to the parent.
+     * @param node The overfull node.
+     * @return The new right sibling, with its separating key in splitName and splitSequence.
+     */
+    private Node split(Node node) {
+        int mid = node.size / 2;
+        Node right = new Node(node.isLeaf(), maxKeys(node));
+        splitName = node.names[mid];
+        splitSequence = node.sequences[mid];
+        if (node.isLeaf()) {
+            right.size = node.size - mid;
+            System.arraycopy(node.names, mid, right.names, 0, right.size);
+            System.arraycopy(node.sequences, mid, right.sequences, 0, right.size);
+            System.arraycopy(node.contacts, mid, right.contacts, 0, right.size);
+            right.next = node.next;
+            node.next = right;
+        } else {
+            right.size = node.size - mid - 1;
+            System.arraycopy(node.names, mid + 1, right.names, 0, right.size);
+            System.arraycopy(node.sequences, mid + 1, right.sequences, 0, right.size);
+            System.arraycopy(node.children, mid + 1, right.children, 0, right.size + 1);
+        }
+        clear(node, mid, node.size);
+        node.size = mid;
+        return right;
+    }
+
+    /**
+     * Clears the references held by a range of slots of a node, so removed contacts can be garbage collected.
+     * @param node The node.
+     * @param from The first slot to clear.
+     * @param to The slot after the last one to clear.
+     */
+    private static void clear(Node node, int from, int to) {
+        for (int i = from; i < to; i++) {
+            node.names[i] = null;
+            if (node.isLeaf()) {
+                node.contacts[i] = null;
+            } else {
+                node.children[i + 1] = null;
+            }
+        }
+    }
+
+    /**
+     * Finds the leaf position of the earliest inserted contact with the given last name.
+     * @param lastName The last name to search for.
+     * @param leafIndex An array receiving the index of the contact in the leaf.
+     * @return The leaf holding the contact, with the index of the contact in leafIndex[0], or null if not found.
+     */
+    private Node findLeaf(String lastName, int[] leafIndex) {
+        Node node = root;
+        while (!node.isLeaf()) {
+            node = node.children[upperBound(node, lastName, -1)];
+        }
+        int i = upperBound(node, lastName, -1);
+        if (i == node.size) { // Every key of the leaf is lower, the contact can only start the next leaf
+            node = node.next;
+            i = 0;
+        }
+        if (node == null || node.size == 0 || !node.names[i].equalsIgnoreCase(lastName)) {
+            return null;
+        }
+        leafIndex[0] = i;
+        return node;
+    }
+
+    /**
+     * Deletes the earliest inserted contact with the given last name from the tree.
+     * @param lastName The last name of the contact to delete.
+     */
+    @Override
+    public void delete(String lastName) {
+        int[] index = new int[1];
+        Node leaf = findLeaf(lastName, index);
+        if (leaf == null) {
+            System.err.println("Contact with last name '" + lastName + "' does not exist.");
+            return;
+        }
+        delete(root, leaf.names[index[0]], leaf.sequences[index[0]]);
+        if (!root.isLeaf() && root.size == 0) { // The root lost its last key, the tree shrinks by one level
+            root = root.children[0];
+        }
+        System.out.println("Contact deleted successfully!");
+    }
+
+    /**
+     * Recursively deletes a key from the subtree rooted at the given node,
+     * refilling any child left with too few keys from a sibling or merging it into one.
+     * @param node The root node of the subtree.
+     * @param name The last name of the key, which must be in the subtree.
+     * @param sequence The sequence number of the key.
+     */
+    private void delete(Node node, String name, long sequence) {
+        int i = upperBound(node, name, sequence);
+        if (node.isLeaf()) {
+            i--; // The key is the last one not higher than itself
+            System.arraycopy(node.names, i + 1, node.names, i, node.size - i - 1);
+            System.arraycopy(node.sequences, i + 1, node.sequences, i, node.size - i - 1);
+            System.arraycopy(node.contacts, i + 1, node.contacts, i, node.size - i - 1);
+            node.size--;
+            clear(node, node.size, node.size + 1);
+            return;
+        }
+        Node child = node.children[i];
+        delete(child, name, sequence);
+        if (child.size < maxKeys(child) / 2) {
+            rebalance(node, i);
+        }
+    }
+
+    /**
+     * Refills a child with too few keys by borrowing a key from a sibling with keys to spare,
+     * or merges it with a sibling if neither has any.
+     * @param parent The parent of the child.
+     * @param i The index of the child in the parent.
+     */
+    private void rebalance(Node parent, int i) {
+        Node child = parent.children[i];
+        Node left = i > 0 ? parent.children[i - 1] : null;
+        Node right = i < parent.size ? parent.children[i + 1] : null;
+        int min = maxKeys(child) / 2;
+
+        if (left != null && left.size > min) { // Borrow the last key of the left sibling
+            int last = left.size - 1;
+            if (child.isLeaf()) {
+                insertKey(child, 0, left.names[last], left.sequences[last]);
+                System.arraycopy(child.contacts, 0, child.contacts, 1, child.size - 1);
+                child.contacts[0] = left.contacts[last];
+            } else {
+                insertKey(child, 0, parent.names[i - 1], parent.sequences[i - 1]);
+                System.arraycopy(child.children, 0, child.children, 1, child.size);
+                child.children[0] = left.children[last + 1];
+            }
+            parent.names[i - 1] = child.isLeaf() ? child.names[0] : left.names[last];
+            parent.sequences[i - 1] = child.isLeaf() ? child.sequences[0] : left.sequences[last];
+            left.size--;
+            clear(left, last, last + 1);
+        } else if (right != null && right.size > min) { // Borrow the first key of the right sibling
+            if (child.isLeaf()) {
+                insertKey(child, child.size, right.names[0], right.sequences[0]);
+                child.contacts[child.size - 1] = right.contacts[0];
+                System.arraycopy(right.contacts, 1, right.contacts, 0, right.size - 1);
+            } else {
+                insertKey(child, child.size, parent.names[i], parent.sequences[i]);
+                child.children[child.size] = right.children[0];
+                parent.names[i] = right.names[0];
+                parent.sequences[i] = right.sequences[0];
+                System.arraycopy(right.children, 1, right.children, 0, right.size);
+            }
+            System.arraycopy(right.names, 1, right.names, 0, right.size - 1);
+            System.arraycopy(right.sequences, 1, right.sequences, 0, right.size - 1);
+            right.size--;
+            right.names[right.size] = null;
+            if (right.isLeaf()) {
+                right.contacts[right.size] = null;
+                parent.names[i] = right.names[0];
+                parent.sequences[i] = right.sequences[0];
+            } else {
+                right.children[right.size + 1] = null;
+            }
+        } else if (left != null) {
+            merge(parent, i - 1);
+        } else {
+            merge(parent, i);
+        }
+    }
+
+    /**
+     * Merges a child with its right sibling and removes the key separating them from the parent.
+     * @param parent The parent of the children.
+     * @param i The index of the left child in the parent.
+     */
+    private void merge(Node parent, int i) {
+        Node left = parent.children[i];
+        Node right = parent.children[i + 1];
+        if (left.isLeaf()) {
+            System.arraycopy(right.names, 0, left.names, left.size, right.size);
+            System.arraycopy(right.sequences, 0, left.sequences, left.size, right.size);
+            System.arraycopy(right.contacts, 0, left.contacts, left.size, right.size);
+            left.size += right.size;
+            left.next = right.next;
+        } else {
+            left.names[left.size] = parent.names[i];
+            left.sequences[left.size] = parent.sequences[i];
+            System.arraycopy(right.names, 0, left.names, left.size + 1, right.size);
+            System.arraycopy(right.sequences, 0, left.sequences, left.size + 1, right.size);
+            System.arraycopy(right.children, 0, left.children, left.size + 1, right.size + 1);
+            left.size += right.size + 1;
+        }
+        System.arraycopy(parent.names, i + 1, parent.names, i, parent.size - i - 1);
+        System.arraycopy(parent.sequences, i + 1, parent.sequences, i, parent.size - i - 1);
+        System.arraycopy(parent.children, i + 2, parent.children, i + 1, parent.size - i - 1);
+        parent.size--;
+        clear(parent, parent.size, parent.size + 1);
+    }
+
+    /**
+     * Builds a tree from contacts sorted by last name, ignoring case, such as the output of ContactImporter.
+     * The nodes are filled bottom up in O(n) instead of inserting the contacts one by one, and the keys are spread
+     * evenly over each level so that every node holds at least the minimum number of keys.
+     * The contacts are expected to be valid already and are not checked again.
+     * @param contacts The contacts, each as first name, last name, phone number and email address.
+     * @param fanOut The maximum number of children of an internal node and of contacts of a leaf, at least 3.
+     * @return The tree holding the contacts.
+     * @throws IllegalArgumentException If the contacts are not sorted by last name.
+     */
+    public static BPlusTree bulkLoad(List<String[]> contacts, int fanOut) {
+        BPlusTree tree = new BPlusTree(fanOut);
+        tree.load(contacts.iterator(), contacts.size());
+        return tree;
+    }
+
+    /**
+     * Inserts valid contacts sorted by last name, ignoring case.
+     * An empty tree is bulk loaded from them, a tree already holding contacts inserts them one by one.
+     * @param contacts The contacts, each as first name, last name, phone number and email address.
+     * @param count The number of contacts.
+     * @throws IllegalArgumentException If the tree is empty and the contacts are not sorted by last name
+     * or fewer than count.
+     */
+    @Override
+    public void insertSorted(Iterator<String[]> contacts, int count) {
+        if (!root.isLeaf() || root.size > 0) {
+            ContactIndex.super.insertSorted(contacts, count);
+            return;
+        }
+        load(contacts, count);
+    }
+
+    /**
+     * Fills the empty tree bottom up from contacts sorted by last name, ignoring case, reading them once in order.
+     * @param contacts The contacts, each as first name, last name, phone number and email address.
+     * @param count The number of contacts, which sets the number of leaves.
+     * @throws IllegalArgumentException If the contacts are not sorted by last name or fewer than count.
+     */
+    private void load(Iterator<String[]> contacts, int count) {
+        if (count == 0) {
+            return;
+        }
+
+        List<Node> level = new ArrayList<>();
+        int leaves = (count + fanOut - 1) / fanOut;
+        int next = 0;
+        String previous = null; // The last name of the previous contact
+        for (int j = 0; j < leaves; j++) {
+            Node leaf = new Node(true, fanOut);
+            leaf.size = count / leaves + (j < count % leaves ? 1 : 0);
+            for (int i = 0; i < leaf.size; i++, next++) {
+                if (!contacts.hasNext()) {
+                    throw new IllegalArgumentException("expected " + count + " contacts but got " + next);
+                }
+                String[] contact = contacts.next();
+                if (previous != null && previous.compareToIgnoreCase(contact[1]) > 0) {
+                    throw new IllegalArgumentException("contacts must be sorted by last name");
+                }
+                previous = contact[1];
+                leaf.names[i] = contact[1];
+                leaf.sequences[i] = nextSequence++;
+                leaf.contacts[i] = new Contact(contact[0], contact[1], contact[2], contact[3]);
+            }
+            if (j > 0) {
+                level.get(j - 1).next = leaf;
+            }
+            level.add(leaf);
+        }
+
+        while (level.size() > 1) { // Builds the level above, each key being the lowest key of the child after it
+            List<Node> parents = new ArrayList<>();
+            int nodes = (level.size() + fanOut - 1) / fanOut;
+            next = 0;
+            for (int j = 0; j < nodes; j++) {
+                Node parent = new Node(false, fanOut - 1);
+                int children = level.size() / nodes + (j < level.size() % nodes ? 1 : 0);
+                for (int i = 0; i < children; i++, next++) {
+                    parent.children[i] = level.get(next);
+                    if (i > 0) {
+                        Node lowest = firstLeaf(parent.children[i]);
+                        parent.names[i - 1] = lowest.names[0];
+                        parent.sequences[i - 1] = lowest.sequences[0];
+                    }
+                }
+                parent.size = children - 1;
+                parents.add(parent);
+            }
+            level = parents;
+        }
+        root = level.get(0);
+    }
+
+    /**
+     * Searches for a contact with a specified last name in the tree and prints it.
+     *
+     * @param lastName the last name to search for
+     */
+    @Override
+    public void search(String lastName) {
+        String found = find(lastName);
+        if (found != null) {
+            System.out.println("Contact found: ");
+            System.out.println(found);
+        } else {
+            System.err.println("Node with last name '" + lastName + "' not found.");
+        }
+    }
+
+    @Override
+    public String find(String lastName) {
+        int[] index = new int[1];
+        Node leaf = findLeaf(lastName, index);
+        return leaf == null ? null : leaf.contacts[index[0]].toString();
+    }
+
+    /**
+     * Returns the contacts whose last names fall in a range, in order, by walking the linked leaves.
+     *
+     * @param fromLastName the lowest last name of the range, inclusive
+     * @param toLastName the highest last name of the range, inclusive
+     * @return a list containing string representations of the contacts in the range
+     */
+    public List<String> range(String fromLastName, String toLastName) {
+        List<String> values = new ArrayList<>();
+        Node node = root;
+        while (!node.isLeaf()) {
+            node = node.children[upperBound(node, fromLastName, -1)];
+        }
+        for (int i = upperBound(node, fromLastName, -1); node != null; node = node.next, i = 0) {
+            for (; i < node.size; i++) {
+                if (node.names[i].compareToIgnoreCase(toLastName) > 0) {
+                    return values;
+                }
+                values.add(node.contacts[i].toString());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Prints the contacts in order by walking the linked leaves.
+     */
+    @Override
+    public void printInOrder() {
+        for (Node leaf = firstLeaf(root); leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.size; i++) {
+                System.out.println(leaf.contacts[i]);
+            }
+        }
+    }
+
+    /**
+     * Prints the contacts in pre-order traversal. Contacts are only stored in the leaves,
+     * which every traversal visits from left to right, so this is the same as the in-order traversal.
+     */
+    @Override
+    public void printPreOrder() {
+        printInOrder();
+    }
+
+    /**
+     * Prints the contacts in post-order traversal. Contacts are only stored in the leaves,
+     * which every traversal visits from left to right, so this is the same as the in-order traversal.
+     */
+    @Override
+    public void printPostOrder() {
+        printInOrder();
+    }
+
+    /**
+     * Converts the tree to a list of strings in order.
+     *
+     * @return a list containing string representations of the contacts in the tree
+     */
+    @Override
+    public List<String> toList() {
+        List<String> values = new ArrayList<>();
+        for (Node leaf = firstLeaf(root); leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.size; i++) {
+                values.add(leaf.contacts[i].toString());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the leftmost leaf of a subtree.
+     * @param node The root node of the subtree.
+     * @return The leaf holding the lowest keys of the subtree.
+     */
+    private static Node firstLeaf(Node node) {
+        while (!node.isLeaf()) {
+            node = node.children[0];
+        }
+        return node;
+    }
+
+    /**
+     * Checks the structure of the subtree rooted at the given node: key counts within bounds,
+     * keys in order and within the range set by the parent, and every leaf at the same depth.
+     * @param node The root node of the subtree.
+     * @param depth The depth of the node.
+     * @param leafDepth An array holding the depth of the first leaf reached, or -1.
+     * @return True if the subtree is valid, false otherwise.
+     */
+    private boolean isValid(Node node, int depth, int[] leafDepth) {
+        if (node.size > maxKeys(node) || (node != root && node.size < maxKeys(node) / 2)) {
+            return false;
+        }
+        for (int i = 1; i < node.size; i++) {
+            if (compare(node, i - 1, node.names[i], node.sequences[i]) >= 0) {
+                return false;
+            }
+        }
+        if (node.isLeaf()) {
+            if (leafDepth[0] == -1) {
+                leafDepth[0] = depth;
+            }
+            return leafDepth[0] == depth;
+        }
+        for (int i = 0; i <= node.size; i++) {
+            Node child = node.children[i];
+            if (child.size > 0 && ((i > 0 && compare(child, 0, node.names[i - 1], node.sequences[i - 1]) < 0)
+                    || (i < node.size && compare(child, child.size - 1, node.names[i], node.sequences[i]) >= 0))) {
+                return false;
+            }
+            if (!isValid(child, depth + 1, leafDepth)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs random inserts and deletes on a B+-tree and a BST side by side, then checks that the tree is well formed,
+     * that both find the same contact for every last name and that both hold the same contacts.
+     *
+     * @param operations the number of random inserts and deletes
+     * @param fanOut the fan-out of the tree under test
+     * @return true if the tree behaves like the BST, false otherwise
+     */
+    public static boolean testAgainstBST(int operations, int fanOut) {
+        BPlusTree tree = new BPlusTree(fanOut);
+        BST bst = new BST();
+        List<String[]> contacts = DataGenerator.contacts(operations, DataGenerator.KeyOrder.SKEWED, 42);
+        Random random = new Random(42);
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        try {
+            System.setOut(discard); // Discards the messages printed by delete
+            System.setErr(discard);
+            for (String[] contact : contacts) {
+                if (random.nextInt(3) == 0) {
+                    tree.delete(contact[1]);
+                    bst.delete(contact[1]);
+                } else {
+                    tree.insert(contact[0], contact[1], contact[2], contact[3]);
+                    bst.insert(contact[0], contact[1], contact[2], contact[3]);
+                }
+            }
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        boolean passed = tree.isValid(tree.root, 0, new int[]{-1});
+        if (!passed) {
+            System.out.println("Error: the tree is not well formed");
+        }
+        for (String[] contact : contacts) {
+            String expected = bst.find(contact[1]);
+            String actual = tree.find(contact[1]);
+            if (expected == null ? actual != null : !expected.equals(actual)) {
+                System.out.println("Error: '" + contact[1] + "' found " + actual + " instead of " + expected);
+                passed = false;
+            }
+        }
+        List<String> expected = new ArrayList<>(bst.toList());
+        List<String> actual = tree.toList();
+        Collections.sort(expected);
+        List<String> sorted = new ArrayList<>(actual);
+        Collections.sort(sorted);
+        if (!expected.equals(sorted)) {
+            System.out.println("Error: the tree and the BST hold different contacts");
+            passed = false;
+        }
+        System.out.println(operations + " operations, fan-out " + fanOut + ", " + actual.size() + " contacts: "
+                + (passed ? "Passed." : "Failed."));
+        return passed;
+    }
+
+    /**
+     * Bulk loads sorted contacts, checks that the tree is well formed and holds them in order,
+     * then checks that it stays well formed through inserts and deletes.
+     *
+     * @param size the number of contacts
+     * @param fanOut the fan-out of the tree under test
+     * @return true if every check passes, false otherwise
+     */
+    public static boolean testBulkLoad(int size, int fanOut) {
+        List<String[]> contacts = DataGenerator.contacts(size, DataGenerator.KeyOrder.SORTED, 42);
+        BPlusTree tree = BPlusTree.bulkLoad(contacts, fanOut);
+        boolean passed = tree.isValid(tree.root, 0, new int[]{-1});
+        List<String> values = tree.toList();
+        for (int i = 0; i < size && passed; i++) {
+            passed = values.get(i).equals(String.join(",", contacts.get(i)));
+        }
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // Discards the messages printed by delete
+        try {
+            for (int i = 0; i < size; i += 2) {
+                tree.delete(contacts.get(i)[1]);
+            }
+        } finally {
+            System.setOut(out);
+        }
+        for (String[] contact : DataGenerator.contacts(size / 2, DataGenerator.KeyOrder.RANDOM, 7)) {
+            tree.insert(contact[0], contact[1], contact[2], contact[3]);
+        }
+        passed &= tree.isValid(tree.root, 0, new int[]{-1}) && tree.toList().size() == size - (size + 1) / 2 + size / 2;
+        System.out.println(size + " contacts bulk loaded, fan-out " + fanOut + ": " + (passed ? "Passed." : "Failed."));
+        return passed;
+    }
+
+    /**
+     * Demonstrates how to use this class.
+     *
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        BPlusTree.testAgainstBST(20_000, 3);
+        BPlusTree.testAgainstBST(20_000, 4);
+        BPlusTree.testAgainstBST(20_000, 64);
+        BPlusTree.testBulkLoad(1, 3);
+        BPlusTree.testBulkLoad(10_000, 3);
+        BPlusTree.testBulkLoad(10_000, 5);
+        BPlusTree.testBulkLoad(100_000, 64);
+    }
+}
@@ -1,8 +1,10 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Pattern;
 
-public class BST {
+public class BST implements ContactIndex {
     /**
      * This class represents a node in a binary search tree for storing contact info.
      */
@@ -134,8 +136,9 @@ public class BST {
      * @param phoneNumber The phone number of the contact.
      * @param emailAddress The email address of the contact.
      */
+    @Override
     public void insert(String firstName, String lastName, String phoneNumber, String emailAddress) {
-        if (!isValidInput(firstName, lastName, phoneNumber, emailAddress)) {
+        if (!ContactIndex.isValidInput(firstName, lastName, phoneNumber, emailAddress)) {
             System.err.println("Invalid input data.");
             return;
         }
@@ -148,22 +151,71 @@ public class BST {
     }
 
     /**
-     * Recursively inserts a new node into the BST rooted at the given root node.
+     * Inserts valid contacts sorted by last name, ignoring case, so that the tree stays balanced.
+     * Inserting them in order would give every node a single right child, a list as deep as the number of contacts.
+     * Instead the nodes are created in order, then the middle node of each range is made the parent of the two
+     * halves around it, which builds a tree of logarithmic depth in O(n). Among nodes sharing the middle last name,
+     * the earliest is taken, so that the others go to its right as they would if inserted one by one.
+     * A tree that already holds contacts inserts them one by one.
+     * @param contacts The contacts, each as first name, last name, phone number and email address.
+     * @param count The number of contacts.
+     */
+    @Override
+    public void insertSorted(Iterator<String[]> contacts, int count) {
+        if (root != null) {
+            ContactIndex.super.insertSorted(contacts, count);
+            return;
+        }
+        Node[] nodes = new Node[count];
+        int size = 0;
+        while (size < count && contacts.hasNext()) {
+            String[] contact = contacts.next();
+            nodes[size++] = new Node(contact[0], contact[1], contact[2], contact[3]);
+        }
+
+        Deque<int[]> ranges = new ArrayDeque<>(); // Ranges left to link: first, last inclusive, parent and side
+        ranges.push(new int[]{0, size - 1, -1, 0});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            if (range[0] > range[1]) {
+                continue;
+            }
+            int middle = (range[0] + range[1]) >>> 1;
+            String lastName = nodes[middle].getLastName();
+            while (middle > range[0] && nodes[middle - 1].getLastName().equalsIgnoreCase(lastName)) {
+                middle--;
+            }
+            if (range[2] < 0) {
+                root = nodes[middle];
+            } else if (range[3] == 0) {
+                nodes[range[2]].setLeft(nodes[middle]);
+            } else {
+                nodes[range[2]].setRight(nodes[middle]);
+            }
+            ranges.push(new int[]{range[0], middle - 1, middle, 0});
+            ranges.push(new int[]{middle + 1, range[1], middle, 1});
+        }
+    }
+
+    /**
+     * Inserts a new node into the BST rooted at the given root node, walking down to the leaf it belongs under.
      * @param root The root node of the subtree.
      * @param newNode The node to insert.
      */
     private void insertNode(Node root, Node newNode) {
-        if (newNode.getLastName().compareToIgnoreCase(root.getLastName()) < 0) {
-            if (root.getLeft() == null) {
-                root.setLeft(newNode);
+        while (true) {
+            if (newNode.getLastName().compareToIgnoreCase(root.getLastName()) < 0) {
+                if (root.getLeft() == null) {
+                    root.setLeft(newNode);
+                    return;
+                }
+                root = root.getLeft();
             } else {
-                insertNode(root.getLeft(), newNode);
-            }
-        } else {
-            if (root.getRight() == null) {
-                root.setRight(newNode);
-            } else {
-                insertNode(root.getRight(), newNode);
+                if (root.getRight() == null) {
+                    root.setRight(newNode);
+                    return;
+                }
+                root = root.getRight();
             }
         }
     }
@@ -173,6 +225,7 @@ public class BST {
      * Deletes a node with the given last name from the BST.
      * @param lastName The last name of the contact to delete.
      */
+    @Override
     public void delete(String lastName) {
         boolean[] deleted = {false}; // Flag to track if deletion occurs
         root = deleteNode(root, lastName, deleted);
@@ -225,28 +278,10 @@ public class BST {
         return node;
     }
 
-
-    /**
-     * Checks if the input data for contact info is valid.
-     * @param firstName The first name of the contact.
-     * @param lastName The last name of the contact.
-     * @param phoneNumber The phone number of the contact.
-     * @param emailAddress The email address of the contact.
-     * @return True if the input data is valid, false otherwise.
-     */
-    private boolean isValidInput(String firstName, String lastName, String phoneNumber, String emailAddress) {
-        String emailRegex = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
-        String nameRegex = "^[a-zA-Z]+$";
-        String phoneRegex = "^\\d{10}$";
-        return Pattern.matches(emailRegex, emailAddress) &&
-                Pattern.matches(nameRegex, firstName) &&
-                Pattern.matches(nameRegex, lastName) &&
-                Pattern.matches(phoneRegex, phoneNumber);
-    }
-
     /**
      * Prints the contacts in the BST in in-order traversal.
      */
+    @Override
     public void printInOrder() {
         printInOrder(root);
     }
@@ -266,6 +301,7 @@ public class BST {
     /**
      * Prints the contacts in the BST in pre-order traversal.
      */
+    @Override
     public void printPreOrder() {
         printPreOrder(root);
     }
@@ -285,6 +321,7 @@ public class BST {
     /**
      * Prints the contacts in the BST in post-order traversal.
      */
+    @Override
     public void printPostOrder() {
         printPostOrder(root);
     }
@@ -306,6 +343,7 @@ public class BST {
      *
      * @param lastName the last name to search for
      */
+    @Override
     public void search(String lastName) {
         Node foundNode = search(root, lastName);
         if (foundNode != null) {
@@ -316,23 +354,28 @@ public class BST {
         }
     }
 
+    @Override
+    public String find(String lastName) {
+        Node foundNode = search(root, lastName);
+        return foundNode == null ? null : foundNode.toString();
+    }
+
     /**
-     * A recursive helper function to search for a node with a specified last name in BST.
+     * A helper function to search for a node with a specified last name in BST.
      *
-     * @param node the current node being examined
+     * @param node the root of the subtree to search
      * @param lastName the last name to search for
      * @return the node with the specified last name, or null if not found
      */
     private Node search(Node node, String lastName) {
-        if (node == null || node.getLastName().equalsIgnoreCase(lastName)) {
-            return node;
-        }
-
-        if (lastName.compareToIgnoreCase(node.getLastName()) < 0) {
-            return search(node.getLeft(), lastName);
-        } else {
-            return search(node.getRight(), lastName);
+        while (node != null && !node.getLastName().equalsIgnoreCase(lastName)) {
+            if (lastName.compareToIgnoreCase(node.getLastName()) < 0) {
+                node = node.getLeft();
+            } else {
+                node = node.getRight();
+            }
         }
+        return node;
     }
 
     /**
@@ -340,6 +383,7 @@ public class BST {
      *
      * @return a list containing string representations of the nodes in the tree
      */
+    @Override
     public List<String> toList() {
         List<String> values = new LinkedList<>();
         toList(root, values);
@@ -0,0 +1,358 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures the throughput of the data structures of this project on generated data and writes the results as JSON.
+ * Every benchmark is warmed up, then timed over several iterations, and reported as the average time per operation.
+ * The results use the JSON layout of JMH, so runs on different versions can be compared with the same tools.
+ *
+ * The console output of the measured code, such as the messages printed by BST.search, is discarded while
+ * a benchmark runs. Benchmarks run on a thread with a large stack, since a BST built from sorted keys
+ * is as deep as it is large and its recursive methods would otherwise overflow the stack.
+ */
+public class Benchmarks {
+    private static final int WARMUP_ITERATIONS = 3; // Iterations run before measuring, to let the JIT compile
+    private static final int MEASURED_ITERATIONS = 5; // Iterations whose times are reported
+    private static final double Z_999 = 3.29; // Half-width of a 99.9% confidence interval in standard errors
+
+    /**
+     * Represents one benchmark: a timed run and the untimed preparation before each run.
+     */
+    private interface Workload {
+        /**
+         * Prepares the next run, outside of the measured time.
+         *
+         * @throws IOException If the data of the benchmark cannot be read or written.
+         */
+        default void setUp() throws IOException {
+        }
+
+        /**
+         * Runs the measured operations.
+         *
+         * @return the number of operations performed
+         * @throws IOException If the data of the benchmark cannot be read or written.
+         */
+        long run() throws IOException;
+    }
+
+    private final Path dataDirectory; // The directory the generated data files are written to
+    private final int scale; // Multiplies the default size of every data set
+    private final List<String> results; // The JSON object of each benchmark run so far
+
+    /**
+     * Constructs a benchmark suite.
+     *
+     * @param dataDirectory The directory the generated data files are written to.
+     * @param scale Multiplies the default size of every data set.
+     */
+    public Benchmarks(Path dataDirectory, int scale) {
+        this.dataDirectory = dataDirectory;
+        this.scale = scale;
+        this.results = new ArrayList<>();
+    }
+
+    /**
+     * Runs every benchmark.
+     *
+     * @throws IOException If the data files cannot be written or read.
+     */
+    public void runAll() throws IOException {
+        benchmarkContactIndexes();
+        benchmarkDictionary();
+        benchmarkSolver();
+        benchmarkStack();
+    }
+
+    /**
+     * Measures BST and BPlusTree on contacts whose last names come in random, sorted and skewed order:
+     * insert, search and delete as used by ContactManagementSystem, lookup latency with find,
+     * and in-order scan throughput with toList, one operation per contact.
+     *
+     * @throws IOException If the contacts file cannot be written.
+     */
+    private void benchmarkContactIndexes() throws IOException {
+        int size = 10_000 * scale;
+        for (DataGenerator.KeyOrder order : DataGenerator.KeyOrder.values()) {
+            Path csv = dataDirectory.resolve("contacts-" + order.name().toLowerCase() + ".csv");
+            DataGenerator.writeContacts(csv, size, order, 42);
+            List<String[]> contacts = new ArrayList<>();
+            for (String line : Files.readAllLines(csv)) {
+                contacts.add(line.split("\\s*,\\s*"));
+            }
+            List<String> lookups = new ArrayList<>();
+            for (String[] contact : contacts) {
+                lookups.add(contact[1]);
+            }
+            Collections.shuffle(lookups, new Random(7));
+            String params = "\"order\": \"" + order.name().toLowerCase() + "\", \"size\": \"" + size + "\"";
+            benchmarkContactIndex("BST", BST::new, contacts, lookups, params);
+            benchmarkContactIndex("BPlusTree", BPlusTree::new, contacts, lookups, params);
+        }
+    }
+
+    /**
+     * Measures one kind of contact index on the given contacts.
+     *
+     * @param name The name of the index, which prefixes the benchmark names.
+     * @param newIndex Creates an empty index.
+     * @param contacts The contacts to insert.
+     * @param lookups The last names to search for and delete, in order.
+     * @param params The parameters of the benchmarks, as the members of a JSON object.
+     */
+    private void benchmarkContactIndex(String name, Supplier<ContactIndex> newIndex, List<String[]> contacts,
+                                       List<String> lookups, String params) {
+        ContactIndex[] index = new ContactIndex[1];
+        Workload build = () -> {
+            index[0] = newIndex.get();
+            for (String[] contact : contacts) {
+                index[0].insert(contact[0], contact[1], contact[2], contact[3]);
+            }
+            return contacts.size();
+        };
+
+        measure(name + ".insert", params, build);
+        measure(name + ".search", params, () -> {
+            for (String lastName : lookups) {
+                index[0].search(lastName);
+            }
+            return lookups.size();
+        });
+        measure(name + ".find", params, () -> {
+            for (String lastName : lookups) {
+                index[0].find(lastName);
+            }
+            return lookups.size();
+        });
+        measure(name + ".toList", params, () -> index[0].toList().size());
+        measure(name + ".delete", params, new Workload() {
+            @Override
+            public void setUp() throws IOException {
+                build.run();
+            }
+
+            @Override
+            public long run() {
+                for (String lastName : lookups) {
+                    index[0].delete(lastName);
+                }
+                return lookups.size();
+            }
+        });
+    }
+
+    /**
+     * Measures Dictionary ingestion of a Zipfian corpus, one operation per word, with the words kept as Strings
+     * and in an off-heap WordArena, and the top-k queries on its words.
+     *
+     * @throws IOException If the corpus cannot be written.
+     */
+    private void benchmarkDictionary() throws IOException {
+        long words = 2_000_000L * scale;
+        int distinct = 100_000;
+        Path corpus = dataDirectory.resolve("corpus.txt");
+        DataGenerator.writeText(corpus, words, distinct, 1.1, 42);
+        String params = "\"words\": \"" + words + "\", \"distinct\": \"" + distinct + "\"";
+
+        measure("Dictionary.loadFiles", params + ", \"store\": \"strings\"", () -> {
+            new Dictionary(corpus.toString()).loadFiles(List.of(corpus));
+            return words;
+        });
+        measure("Dictionary.loadFiles", params + ", \"store\": \"off-heap\"", () -> {
+            new Dictionary(corpus.toString(), true).loadFiles(List.of(corpus));
+            return words;
+        });
+
+        WordTable table = new WordTable();
+        table.enableRanking();
+        WordScanner scanner = new WordScanner(table);
+        scanner.scan(Files.readString(corpus));
+        scanner.endWord();
+        int queries = 1000;
+        for (int k : new int[]{10, 1000}) {
+            measure("Dictionary.topK", params + ", \"k\": \"" + k + "\"", () -> {
+                for (int i = 0; i < queries; i++) {
+                    table.mostFrequent(k);
+                    table.leastFrequent(k);
+                }
+                return 2L * queries;
+            });
+        }
+    }
+
+    /**
+     * Measures Solver on an expression file, one operation per line, both line by line and streamed.
+     *
+     * @throws IOException If the expression file cannot be written.
+     */
+    private void benchmarkSolver() throws IOException {
+        int lines = 200_000 * scale;
+        Path expressions = dataDirectory.resolve("expressions.txt");
+        Path output = dataDirectory.resolve("solved.txt");
+        DataGenerator.writeExpressions(expressions, lines, 8, 42);
+        String params = "\"lines\": \"" + lines + "\"";
+
+        measure("Solver.process", params, () -> {
+            new Solver().process(expressions.toString());
+            return lines;
+        });
+        measure("Solver.processStream", params, () -> {
+            Solver.processStream(expressions.toString(), output.toString());
+            return lines;
+        });
+    }
+
+    /**
+     * Measures Stack by pushing a number of elements and popping them all, one operation per push or pop.
+     */
+    private void benchmarkStack() {
+        int size = 1_000_000 * scale;
+        Integer[] values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        String params = "\"size\": \"" + size + "\"";
+
+        measure("Stack.pushPop", params, () -> {
+            Stack<Integer> stack = new Stack<>();
+            for (Integer value : values) {
+                stack.push(value);
+            }
+            while (!stack.isEmpty()) {
+                stack.pop();
+            }
+            return 2L * size;
+        });
+    }
+
+    /**
+     * Warms up and times a benchmark, then records its result.
+     * The console output of the benchmark is discarded while it runs.
+     *
+     * @param name The name of the benchmark.
+     * @param params The parameters of the benchmark, as the members of a JSON object.
+     * @param workload The benchmark to run.
+     */
+    private void measure(String name, String params, Workload workload) {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        double[] scores = new double[MEASURED_ITERATIONS];
+        try {
+            System.setOut(discard);
+            System.setErr(discard);
+            for (int i = -WARMUP_ITERATIONS; i < MEASURED_ITERATIONS; i++) {
+                workload.setUp();
+                long start = System.nanoTime();
+                long operations = workload.run();
+                long elapsed = System.nanoTime() - start;
+                if (i >= 0) {
+                    scores[i] = (double) elapsed / operations;
+                }
+            }
+        } catch (IOException e) {
+            err.println("Error: benchmark " + name + " failed: " + e.getMessage());
+            return;
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        double mean = 0;
+        for (double score : scores) {
+            mean += score;
+        }
+        mean /= scores.length;
+        double variance = 0;
+        for (double score : scores) {
+            variance += (score - mean) * (score - mean);
+        }
+        variance /= scores.length - 1;
+        double error = Z_999 * Math.sqrt(variance / scores.length);
+
+        StringBuilder rawData = new StringBuilder();
+        for (double score : scores) {
+            rawData.append(rawData.length() == 0 ? "" : ", ").append(format(score));
+        }
+        results.add(String.format("""
+                  {
+                    "jdkVersion": "%s",
+                    "benchmark": "%s",
+                    "mode": "avgt",
+                    "warmupIterations": %d,
+                    "measurementIterations": %d,
+                    "params": {%s},
+                    "primaryMetric": {
+                      "score": %s,
+                      "scoreError": %s,
+                      "scoreUnit": "ns/op",
+                      "rawData": [[%s]]
+                    }
+                  }""", System.getProperty("java.version"), name, WARMUP_ITERATIONS, MEASURED_ITERATIONS,
+                params, format(mean), format(error), rawData));
+        System.out.printf("%-22s %-55s %12.2f +- %.2f ns/op%n", name, params.replace("\"", ""), mean, error);
+    }
+
+    /**
+     * Formats a number for JSON, which has no notation for infinity or NaN.
+     *
+     * @param value The number to format.
+     * @return the number with three decimals, or null if it is not finite
+     */
+    private static String format(double value) {
+        return Double.isFinite(value) ? String.format(Locale.ROOT, "%.3f", value) : "null";
+    }
+
+    /**
+     * Returns the results recorded so far as a JSON array.
+     *
+     * @return the results
+     */
+    public String toJson() {
+        return "[\n" + String.join(",\n", results) + "\n]\n";
+    }
+
+    /**
+     * Runs every benchmark on freshly generated data and writes the results as JSON.
+     * Usage: Benchmarks [OUTPUT_PATH] [SCALE], by default benchmarks.json and 1.
+     *
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        Path outputPath = Path.of(args.length > 0 ? args[0] : "benchmarks.json");
+        int scale = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        Thread runner = new Thread(null, () -> {
+            Path dataDirectory = null;
+            try {
+                dataDirectory = Files.createTempDirectory("benchmarks");
+                Benchmarks benchmarks = new Benchmarks(dataDirectory, scale);
+                benchmarks.runAll();
+                Files.writeString(outputPath, benchmarks.toJson());
+                System.out.println("Results written to " + outputPath);
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+            } finally {
+                if (dataDirectory != null) {
+                    try (var files = Files.list(dataDirectory)) {
+                        for (Path file : (Iterable<Path>) files::iterator) {
+                            Files.delete(file);
+                        }
+                        Files.delete(dataDirectory);
+                    } catch (IOException e) {
+                        System.err.println("Error: could not delete " + dataDirectory + ": " + e.getMessage());
+                    }
+                }
+            }
+        }, "benchmarks", 1L << 30);
+        runner.start();
+    }
+}
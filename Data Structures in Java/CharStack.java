@@ -0,0 +1,92 @@
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Represents a stack of primitive chars backed by a growable array.
+ * Values are stored without boxing and the array is kept when the stack is cleared,
+ * so a stack that is reused does not allocate once it has grown to its working depth.
+ */
+public class CharStack {
+    private char[] values; // The values of the stack, bottom first
+    private int size; // The size of the stack
+
+    /**
+     * Constructs an empty stack with a default capacity.
+     */
+    public CharStack() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty stack with the given capacity.
+     *
+     * @param capacity the number of values the stack can hold before it grows
+     */
+    public CharStack(int capacity) {
+        this.values = new char[Math.max(1, capacity)];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of values in the stack.
+     *
+     * @return the size of the stack
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Checks if the stack is empty.
+     *
+     * @return true if the stack is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Pushes a value onto the top of the stack, doubling the capacity if the stack is full.
+     *
+     * @param val the value to be pushed onto the stack
+     */
+    public void push(char val) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = val;
+    }
+
+    /**
+     * Removes and returns the value at the top of the stack.
+     *
+     * @return the value removed from the top of the stack
+     * @throws EmptyStackException if the stack is empty
+     */
+    public char pop() {
+        if (isEmpty()) {
+            throw new EmptyStackException();
+        }
+        return values[--size];
+    }
+
+    /**
+     * Returns the value at the top of the stack without removing it.
+     *
+     * @return the value at the top of the stack
+     * @throws EmptyStackException if the stack is empty
+     */
+    public char peek() {
+        if (isEmpty()) {
+            throw new EmptyStackException();
+        }
+        return values[size - 1];
+    }
+
+    /**
+     * Removes every value from the stack, keeping its capacity.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+}
@@ -0,0 +1,318 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents a lock-free stack that can be shared between threads, also known as a Treiber stack.
+ * The top node is swapped with a compare-and-set, so no thread ever blocks another.
+ * Under heavy contention a push and a pop that both fail their compare-and-set can meet in an
+ * elimination array and hand the element over directly, without touching the top of the stack.
+ * Null values are ignored by push, so pop and peek only return null when the stack is empty.
+ *
+ * @param <E> the type of elements in the stack
+ */
+public class ConcurrentStack<E> {
+
+    /**
+     * Represents a node within the stack.
+     *
+     * @param <E> the type of element stored in the node
+     */
+    private static class Node<E> {
+        private final E val; // The payload of the node
+        private Node<E> next; // A reference to the next node, only written before the node is published
+
+        /**
+         * Constructs a new node with the given value of val.
+         *
+         * @param val the value to be stored in the node
+         */
+        private Node(E val) {
+            this.val = val;
+        }
+    }
+
+    private static final int ELIMINATION_SPINS = 64; // How long a push waits in the elimination array
+
+    private final AtomicReference<Node<E>> top; // The top node of the stack
+    private final AtomicReferenceArray<Node<E>> elimination; // Nodes offered by pushes to pops, or null
+
+    /**
+     * Constructs an empty stack without an elimination array.
+     */
+    public ConcurrentStack() {
+        this(0);
+    }
+
+    /**
+     * Constructs an empty stack with an elimination array of the given size.
+     * A size around half the number of contending threads works well, 0 disables elimination.
+     *
+     * @param eliminationSlots the number of slots in the elimination array
+     */
+    public ConcurrentStack(int eliminationSlots) {
+        this.top = new AtomicReference<>();
+        this.elimination = eliminationSlots > 0 ? new AtomicReferenceArray<>(eliminationSlots) : null;
+    }
+
+    /**
+     * Checks if the stack is empty.
+     *
+     * @return true if the stack was empty at the time of the call, false otherwise
+     */
+    public boolean isEmpty() {
+        return top.get() == null;
+    }
+
+    /**
+     * Returns the number of elements in the stack by walking it.
+     * The result is only exact if no other thread modifies the stack during the call.
+     *
+     * @return the size of the stack
+     */
+    public int size() {
+        int size = 0;
+        for (Node<E> node = top.get(); node != null; node = node.next) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Pushes an element onto the top of the stack.
+     *
+     * @param val the value to be pushed onto the stack
+     */
+    public void push(E val) {
+        if (val == null) {
+            return;
+        }
+        Node<E> node = new Node<>(val);
+        while (true) {
+            Node<E> current = top.get();
+            node.next = current;
+            if (top.compareAndSet(current, node)) {
+                return;
+            }
+            if (elimination != null && offer(node)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the element at the top of the stack.
+     *
+     * @return the element removed from the top of the stack, or null if the stack is empty
+     */
+    public E pop() {
+        while (true) {
+            Node<E> current = top.get();
+            if (current == null) {
+                return null;
+            }
+            if (top.compareAndSet(current, current.next)) {
+                return current.val;
+            }
+            if (elimination != null) {
+                Node<E> offered = take();
+                if (offered != null) {
+                    return offered.val;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the element at the top of the stack without removing it.
+     *
+     * @return the element at the top of the stack, or null if the stack is empty
+     */
+    public E peek() {
+        Node<E> current = top.get();
+        return current == null ? null : current.val;
+    }
+
+    /**
+     * Offers a node to a concurrent pop through a random slot of the elimination array.
+     *
+     * @param node the node being pushed
+     * @return true if a pop took the node, false if the push has to retry on the stack
+     */
+    private boolean offer(Node<E> node) {
+        int slot = ThreadLocalRandom.current().nextInt(elimination.length());
+        if (!elimination.compareAndSet(slot, null, node)) {
+            return false;
+        }
+        for (int i = 0; i < ELIMINATION_SPINS; i++) {
+            if (elimination.get(slot) != node) {
+                return true; // A pop took the node
+            }
+            Thread.onSpinWait();
+        }
+        // Withdraw the offer, failing means a pop took the node in the meantime
+        return !elimination.compareAndSet(slot, node, null);
+    }
+
+    /**
+     * Takes a node offered by a concurrent push from a random slot of the elimination array.
+     *
+     * @return the node taken, or null if the slot held no offer
+     */
+    private Node<E> take() {
+        int slot = ThreadLocalRandom.current().nextInt(elimination.length());
+        Node<E> offered = elimination.get(slot);
+        if (offered != null && elimination.compareAndSet(slot, offered, null)) {
+            return offered;
+        }
+        return null;
+    }
+
+    /**
+     * Runs threads that push unique values and pop concurrently, then checks that
+     * every value was popped at most once and that every pushed value was either popped or is still in the stack.
+     *
+     * @param threads the number of threads
+     * @param operations the number of values each thread pushes
+     * @param eliminationSlots the size of the elimination array of the stack under test
+     * @return true if no value was lost or duplicated, false otherwise
+     */
+    public static boolean testLinearizability(int threads, int operations, int eliminationSlots) {
+        ConcurrentStack<Long> stack = new ConcurrentStack<>(eliminationSlots);
+        List<List<Long>> popped = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<Long> mine = new ArrayList<>();
+            popped.add(mine);
+            long base = (long) t * operations;
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < operations; i++) {
+                    stack.push(base + i);
+                    if ((i & 1) == 1) { // Pop every other time so the stack grows and shrinks
+                        Long val = stack.pop();
+                        if (val != null) {
+                            mine.add(val);
+                        }
+                    }
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        boolean[] seen = new boolean[threads * operations];
+        boolean passed = true;
+        List<Long> all = new ArrayList<>();
+        popped.forEach(all::addAll);
+        for (Long val = stack.pop(); val != null; val = stack.pop()) {
+            all.add(val);
+        }
+        for (long val : all) {
+            if (seen[(int) val]) {
+                System.out.println("Error: value " + val + " was popped twice");
+                passed = false;
+            }
+            seen[(int) val] = true;
+        }
+        if (all.size() != seen.length) {
+            System.out.println("Error: " + (seen.length - all.size()) + " values were lost");
+            passed = false;
+        }
+        System.out.println(threads + " threads, " + all.size() + " values: " + (passed ? "Passed." : "Failed."));
+        return passed;
+    }
+
+    /**
+     * Measures the throughput of push and pop pairs from 1 to the given number of threads, doubling the threads
+     * each step and ending with exactly the given number, comparing this stack with and without elimination
+     * against a Stack guarded by synchronized.
+     *
+     * @param maxThreads the highest number of threads to measure
+     * @param millis how long each measurement lasts
+     */
+    public static void benchmark(int maxThreads, long millis) {
+        int threads = 0;
+        while (threads < maxThreads) {
+            threads = Math.min(Math.max(threads * 2, 1), maxThreads);
+            ConcurrentStack<Integer> plain = new ConcurrentStack<>();
+            ConcurrentStack<Integer> eliminating = new ConcurrentStack<>(Math.max(1, threads / 2));
+            Stack<Integer> locked = new Stack<>();
+            double lockFree = measure(threads, millis, () -> {
+                plain.push(1);
+                plain.pop();
+            });
+            double withElimination = measure(threads, millis, () -> {
+                eliminating.push(1);
+                eliminating.pop();
+            });
+            double synchronizedStack = measure(threads, millis, () -> {
+                synchronized (locked) {
+                    locked.push(1);
+                }
+                synchronized (locked) {
+                    locked.pop();
+                }
+            });
+            System.out.printf("%d thread(s): lock-free %.1f, elimination %.1f, synchronized %.1f million pairs/s%n",
+                    threads, lockFree, withElimination, synchronizedStack);
+        }
+    }
+
+    /**
+     * Runs an operation on the given number of threads for a while.
+     *
+     * @param threads the number of threads
+     * @param millis how long to run
+     * @param operation the operation to run
+     * @return the number of operations completed, in millions per second
+     */
+    private static double measure(int threads, long millis, Runnable operation) {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder completed = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Thread(() -> {
+                long count = 0;
+                while (running.get()) {
+                    operation.run();
+                    count++;
+                }
+                completed.add(count);
+            }));
+        }
+        workers.forEach(Thread::start);
+        try {
+            Thread.sleep(millis);
+            running.set(false);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return completed.sum() / (millis * 1000.0);
+    }
+
+    /**
+     * Demonstrates how to use this class.
+     *
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ConcurrentStack.testLinearizability(Math.max(4, threads), 200_000, 0);
+        ConcurrentStack.testLinearizability(Math.max(4, threads), 200_000, Math.max(2, threads / 2));
+        ConcurrentStack.benchmark(Math.max(4, threads), 1000);
+    }
+}
@@ -0,0 +1,356 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Imports contact CSV files of any size into a single sorted file without duplicates, in a bounded amount of memory.
+ * The inputs are read in runs that fit in the memory budget, each run is sorted and spilled to a temporary file,
+ * then the runs are merged into the output with a k-way merge that drops duplicate contacts.
+ * The output is in the format read by ContactManagementSystem and is sorted by last name, ignoring case,
+ * which ContactManagementSystem detects to bulk load a BPlusTree or build a balanced BST from it.
+ *
+ * Contacts are compared by last name, first name, phone number and email address, names and email ignoring case.
+ * Two contacts equal on all four are duplicates, of which the one read first is kept.
+ */
+public class ContactImporter {
+    private static final int MAX_FAN_IN = 64; // Number of runs merged at a time, which bounds the open files
+    private static final int RECORD_OVERHEAD = 200; // Estimated heap bytes taken by a contact besides its characters
+    private static final int READ_BUFFER_SIZE = 1 << 16; // Size of the buffer of each run reader
+
+    /**
+     * Orders contacts by last name, first name, phone number and email address, names and email ignoring case.
+     */
+    private static final Comparator<String[]> ORDER = (a, b) -> {
+        int c = a[1].compareToIgnoreCase(b[1]);
+        if (c == 0) {
+            c = a[0].compareToIgnoreCase(b[0]);
+        }
+        if (c == 0) {
+            c = a[2].compareTo(b[2]);
+        }
+        if (c == 0) {
+            c = a[3].compareToIgnoreCase(b[3]);
+        }
+        return c;
+    };
+
+    /**
+     * Represents a sorted run being read during a merge, positioned on its next contact.
+     */
+    private static class Run {
+        private final BufferedReader reader; // The reader of the run file
+        private final int order; // The position of the run among the runs merged, earlier runs win ties
+        private String[] current; // The next contact of the run, or null once the run is exhausted
+
+        /**
+         * Opens a run and reads its first contact.
+         * @param path The path of the run file.
+         * @param order The position of the run among the runs merged.
+         * @throws IOException If the run cannot be read.
+         */
+        private Run(Path path, int order) throws IOException {
+            this.reader = Files.newBufferedReader(path);
+            this.order = order;
+            advance();
+        }
+
+        /**
+         * Reads the next contact of the run.
+         * @throws IOException If the run cannot be read.
+         */
+        private void advance() throws IOException {
+            String line = reader.readLine();
+            current = line == null ? null : line.split(",");
+        }
+    }
+
+    private final Path tempDirectory; // The directory the runs are spilled to
+    private final long memoryBudget; // The estimated number of heap bytes a run may take
+    private long contactsRead; // Number of valid contacts read from the inputs
+    private long invalidLines; // Number of input lines rejected
+    private long duplicates; // Number of duplicate contacts dropped
+    private int runsSpilled; // Number of runs written, intermediate merges included
+
+    /**
+     * Constructs an importer.
+     * @param tempDirectory The directory to spill sorted runs to, which must exist.
+     * @param memoryBudget The estimated number of heap bytes the contacts of a run may take.
+     */
+    public ContactImporter(Path tempDirectory, long memoryBudget) {
+        this.tempDirectory = tempDirectory;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Sorts and deduplicates the contacts of the inputs into the output file, replacing it atomically,
+     * then checks that the output is sorted and valid.
+     * @param inputs The CSV files to import, in the order their contacts take precedence.
+     * @param output The path of the sorted CSV file.
+     * @return The number of contacts written.
+     * @throws IOException If an input cannot be read, a run or the output cannot be written,
+     * or the output fails validation.
+     */
+    public long importFiles(List<Path> inputs, Path output) throws IOException {
+        List<Path> created = new ArrayList<>(); // Every run file created, intermediate merges included
+        List<Path> runs = new ArrayList<>();
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        try {
+            spillRuns(inputs, runs, created);
+            while (runs.size() > MAX_FAN_IN) { // Merges groups of runs until a single merge can take them all
+                List<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                    List<Path> group = runs.subList(i, Math.min(i + MAX_FAN_IN, runs.size()));
+                    Path run = createRun(created);
+                    merge(group, run);
+                    runsSpilled++;
+                    merged.add(run);
+                    for (Path path : group) {
+                        Files.delete(path);
+                    }
+                }
+                runs = merged;
+            }
+
+            long written = merge(runs, temp);
+            long validated = validate(temp);
+            if (validated != written) {
+                throw new IOException("sorted output failed validation");
+            }
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return written;
+        } finally {
+            for (Path run : created) {
+                Files.deleteIfExists(run);
+            }
+            Files.deleteIfExists(temp); // Left behind only if the import failed before moving it to the output
+        }
+    }
+
+    /**
+     * Opens a contact CSV file for reading as UTF-8, replacing malformed bytes instead of failing,
+     * so that an export in another encoding, such as Windows-1252, is still read. A contact whose fields hold
+     * replaced characters fails validation and is skipped like any other invalid line.
+     * ContactManagementSystem reads its file the same way, so both accept the same files.
+     * @param path The path of the file.
+     * @return A reader of the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static BufferedReader openCsv(Path path) throws IOException {
+        return new BufferedReader(new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)));
+    }
+
+    /**
+     * Reads the inputs in runs that fit in the memory budget, and writes each run sorted to a temporary file.
+     * @param inputs The CSV files to read.
+     * @param runs The list the paths of the runs are added to, in input order.
+     * @param created The list of run files created, to delete them once the import ends.
+     * @throws IOException If an input cannot be read or a run cannot be written.
+     */
+    private void spillRuns(List<Path> inputs, List<Path> runs, List<Path> created) throws IOException {
+        List<String[]> run = new ArrayList<>();
+        long runBytes = 0;
+        for (Path input : inputs) {
+            try (BufferedReader reader = openCsv(input)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] contactData = line.split("\\s*,\\s*");
+                    if (contactData.length != 4) {
+                        invalidLines++;
+                        continue;
+                    }
+                    for (int i = 0; i < contactData.length; i++) {
+                        contactData[i] = contactData[i].trim();
+                    }
+                    if (!ContactIndex.isValidInput(contactData[0], contactData[1], contactData[2], contactData[3])) {
+                        invalidLines++;
+                        continue;
+                    }
+                    run.add(contactData);
+                    contactsRead++;
+                    runBytes += RECORD_OVERHEAD + line.length();
+                    if (runBytes >= memoryBudget) {
+                        runs.add(spill(run, created));
+                        run.clear();
+                        runBytes = 0;
+                    }
+                }
+            }
+        }
+        if (!run.isEmpty() || runs.isEmpty()) {
+            runs.add(spill(run, created));
+        }
+    }
+
+    /**
+     * Sorts a run, keeping contacts that compare equal in the order they were read, and writes it to a temporary file.
+     * @param run The contacts of the run.
+     * @param created The list of run files created, to which the new file is added.
+     * @return The path of the run file.
+     * @throws IOException If the run cannot be written.
+     */
+    private Path spill(List<String[]> run, List<Path> created) throws IOException {
+        run.sort(ORDER);
+        Path path = createRun(created);
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            for (String[] contact : run) {
+                writer.write(String.join(",", contact));
+                writer.newLine();
+            }
+        }
+        runsSpilled++;
+        return path;
+    }
+
+    /**
+     * Creates an empty run file in the temporary directory and records it, so that it is deleted
+     * even if it is merged away or the import fails before it is filled.
+     * @param created The list of run files created, to which the new file is added.
+     * @return The path of the run file.
+     * @throws IOException If the file cannot be created.
+     */
+    private Path createRun(List<Path> created) throws IOException {
+        Path path = Files.createTempFile(tempDirectory, "contacts-run", ".csv");
+        created.add(path);
+        return path;
+    }
+
+    /**
+     * Merges sorted runs into one sorted file, dropping every contact equal to the one written before it.
+     * Contacts that compare equal are taken from the earliest run first, so the one read first is kept.
+     * @param runs The paths of the runs, in input order.
+     * @param output The path of the merged file.
+     * @return The number of contacts written.
+     * @throws IOException If a run cannot be read or the output cannot be written.
+     */
+    private long merge(List<Path> runs, Path output) throws IOException {
+        PriorityQueue<Run> heap = new PriorityQueue<>(Math.max(1, runs.size()),
+                (a, b) -> {
+                    int c = ORDER.compare(a.current, b.current);
+                    return c != 0 ? c : Integer.compare(a.order, b.order);
+                });
+        List<Run> open = new ArrayList<>();
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(output)) {
+            for (int i = 0; i < runs.size(); i++) {
+                Run run = new Run(runs.get(i), i);
+                open.add(run);
+                if (run.current != null) {
+                    heap.add(run);
+                }
+            }
+            String[] previous = null;
+            while (!heap.isEmpty()) {
+                Run run = heap.poll();
+                if (previous != null && ORDER.compare(previous, run.current) == 0) {
+                    duplicates++;
+                } else {
+                    writer.write(String.join(",", run.current));
+                    writer.newLine();
+                    written++;
+                    previous = run.current;
+                }
+                run.advance();
+                if (run.current != null) {
+                    heap.add(run);
+                }
+            }
+        } finally {
+            for (Run run : open) {
+                run.reader.close();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Checks that every line of a file is a valid contact and that the contacts are sorted without duplicates.
+     * @param path The path of the file.
+     * @return The number of contacts in the file, or -1 if the file is not valid.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long validate(Path path) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String[] previous = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] contact = line.split(",");
+                if (contact.length != 4 || !ContactIndex.isValidInput(contact[0], contact[1], contact[2], contact[3])) {
+                    System.err.println("Invalid data format at line " + (count + 1) + ": " + line);
+                    return -1;
+                }
+                if (previous != null && ORDER.compare(previous, contact) >= 0) {
+                    System.err.println("Contacts out of order at line " + (count + 1) + ": " + line);
+                    return -1;
+                }
+                previous = contact;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a summary of the last import.
+     * @return The numbers of contacts read, invalid lines, duplicates dropped and runs spilled.
+     */
+    @Override
+    public String toString() {
+        return contactsRead + " contacts read, " + invalidLines + " invalid lines skipped, "
+                + duplicates + " duplicates dropped, " + runsSpilled + " runs spilled";
+    }
+
+    /**
+     * Imports contact files from the command line.
+     * Usage: ContactImporter [--memory MB] OUTPUT INPUT...
+     *
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        long memoryBudget = 64L << 20;
+        if (arguments.size() > 1 && arguments.get(0).equals("--memory")) {
+            memoryBudget = Long.parseLong(arguments.get(1)) << 20;
+            arguments = arguments.subList(2, arguments.size());
+        }
+        if (arguments.size() < 2) {
+            System.err.println("Usage: ContactImporter [--memory MB] OUTPUT INPUT...");
+            return;
+        }
+        Path output = Path.of(arguments.get(0));
+        List<Path> inputs = new ArrayList<>();
+        for (String input : arguments.subList(1, arguments.size())) {
+            inputs.add(Path.of(input));
+        }
+
+        long start = System.nanoTime();
+        try {
+            Path tempDirectory = Files.createTempDirectory("contacts-import");
+            ContactImporter importer = new ContactImporter(tempDirectory, memoryBudget);
+            try {
+                long written = importer.importFiles(inputs, output);
+                System.out.printf("Wrote %d contacts to %s in %.3f s: %s%n",
+                        written, output, (System.nanoTime() - start) / 1e9, importer);
+            } finally {
+                Files.delete(tempDirectory);
+            }
+        } catch (NoSuchFileException e) {
+            System.err.println("Error: File not found: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error: import failed: " + e.getMessage());
+        }
+    }
+}
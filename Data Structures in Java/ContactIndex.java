@@ -0,0 +1,92 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a store of contacts ordered by last name, ignoring case, as used by ContactManagementSystem.
+ * Several contacts may share a last name, in which case they are kept in the order they were inserted
+ * and search and delete act on the earliest of them.
+ */
+public interface ContactIndex {
+
+    /**
+     * Inserts a new contact, or prints an error if the contact info is invalid.
+     * @param firstName The first name of the contact.
+     * @param lastName The last name of the contact.
+     * @param phoneNumber The phone number of the contact.
+     * @param emailAddress The email address of the contact.
+     */
+    void insert(String firstName, String lastName, String phoneNumber, String emailAddress);
+
+    /**
+     * Inserts valid contacts sorted by last name, ignoring case, such as the output of ContactImporter.
+     * The contacts are taken one at a time, so a file can be loaded without holding all of its lines at once.
+     * Indexes override it to load sorted input faster or keep it balanced.
+     * @param contacts The contacts, each as first name, last name, phone number and email address.
+     * @param count The number of contacts.
+     */
+    default void insertSorted(Iterator<String[]> contacts, int count) {
+        while (contacts.hasNext()) {
+            String[] contact = contacts.next();
+            insert(contact[0], contact[1], contact[2], contact[3]);
+        }
+    }
+
+    /**
+     * Deletes a contact with the given last name and prints whether it existed.
+     * @param lastName The last name of the contact to delete.
+     */
+    void delete(String lastName);
+
+    /**
+     * Searches for a contact with the given last name and prints it.
+     * @param lastName The last name to search for.
+     */
+    void search(String lastName);
+
+    /**
+     * Returns a contact with the given last name without printing anything.
+     * @param lastName The last name to search for.
+     * @return The contact as "first,last,phone,email", or null if not found.
+     */
+    String find(String lastName);
+
+    /**
+     * Prints the contacts in in-order traversal.
+     */
+    void printInOrder();
+
+    /**
+     * Prints the contacts in pre-order traversal.
+     */
+    void printPreOrder();
+
+    /**
+     * Prints the contacts in post-order traversal.
+     */
+    void printPostOrder();
+
+    /**
+     * Converts the contacts to a list of strings, in an order that rebuilds the same index when inserted again.
+     * @return A list containing the string representations of the contacts.
+     */
+    List<String> toList();
+
+    /**
+     * Checks if the input data for contact info is valid.
+     * @param firstName The first name of the contact.
+     * @param lastName The last name of the contact.
+     * @param phoneNumber The phone number of the contact.
+     * @param emailAddress The email address of the contact.
+     * @return True if the input data is valid, false otherwise.
+     */
+    static boolean isValidInput(String firstName, String lastName, String phoneNumber, String emailAddress) {
+        String emailRegex = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
+        String nameRegex = "^[a-zA-Z]+$";
+        String phoneRegex = "^\\d{10}$";
+        return Pattern.matches(emailRegex, emailAddress) &&
+                Pattern.matches(nameRegex, firstName) &&
+                Pattern.matches(nameRegex, lastName) &&
+                Pattern.matches(phoneRegex, phoneNumber);
+    }
+}
@@ -1,18 +1,111 @@
 import java.io.*;
+import java.nio.file.Path;
 import java.util.InputMismatchException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 public class ContactManagementSystem {
-    private final BST bst; // Binary search tree to store contacts
+
+    /**
+     * Reads the valid contacts of a CSV file one at a time, skipping lines in the wrong format or with invalid data.
+     */
+    private static class ContactReader implements Iterator<String[]>, Closeable {
+        private final BufferedReader reader; // The reader of the file
+        private final boolean report; // Whether to print an error for each skipped line
+        private String[] next; // The next valid contact, or null at the end of the file
+
+        /**
+         * Opens a CSV file and reads up to its first valid contact.
+         * @param path the path to the CSV file
+         * @param report whether to print an error for each skipped line
+         * @throws IOException if the file cannot be opened or read
+         */
+        private ContactReader(Path path, boolean report) throws IOException {
+            this.reader = ContactImporter.openCsv(path);
+            this.report = report;
+            try {
+                advance();
+            } catch (UncheckedIOException e) {
+                reader.close();
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String[] next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            String[] contactData = next;
+            advance();
+            return contactData;
+        }
+
+        /**
+         * Reads up to the next valid contact.
+         * @throws UncheckedIOException if the file cannot be read
+         */
+        private void advance() {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] contactData = line.split("\\s*,\\s*");
+                    if (contactData.length != 4) {
+                        if (report) {
+                            // Print error message for invalid data
+                            System.err.println("Invalid data format: " + line);
+                        }
+                        continue;
+                    }
+                    for (int i = 0; i < contactData.length; i++) {
+                        contactData[i] = contactData[i].trim();
+                    }
+                    if (!ContactIndex.isValidInput(contactData[0], contactData[1], contactData[2], contactData[3])) {
+                        if (report) {
+                            System.err.println("Invalid input data.");
+                        }
+                        continue;
+                    }
+                    next = contactData;
+                    return;
+                }
+                next = null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private final ContactIndex index; // The index storing the contacts, a BST by default or a BPlusTree
     private final String csvFilePath; // Path to the CSV file containing contacts
 
     /**
-     * Constructs a contact management system with the specified CSV file path.
+     * Constructs a contact management system with the specified CSV file path, storing contacts in a BST.
      * @param csvFilePath the path to the CSV file
      */
     public ContactManagementSystem(String csvFilePath) {
-        this.bst = new BST();
+        this(csvFilePath, new BST());
+    }
+
+    /**
+     * Constructs a contact management system with the specified CSV file path and contact index.
+     * @param csvFilePath the path to the CSV file
+     * @param index the empty index to store contacts in, such as a BST or a BPlusTree
+     */
+    public ContactManagementSystem(String csvFilePath, ContactIndex index) {
+        this.index = index;
         this.csvFilePath = csvFilePath;
     }
 
@@ -25,24 +118,40 @@ public class ContactManagementSystem {
     }
 
     /**
-     * Loads contact details from a CSV file and populates the binary search tree (BST).
+     * Loads contact details from a CSV file and populates the index.
+     * The file is read twice, one contact at a time: once to count the valid contacts and check whether they are
+     * sorted by last name, then to insert them. A sorted file, such as the output of ContactImporter, is handed
+     * to the index as a whole, since inserting sorted contacts one by one would turn a BST into a list
+     * as deep as the file is long. Neither pass holds the lines of the file in memory.
      */
     private void loadFromCSV() {
         System.out.println("Reading contact details from file...\n");
-        try (BufferedReader reader = new BufferedReader(new FileReader(csvFilePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] contactData = line.split("\\s*,\\s*");
-                if (contactData.length == 4) {
-                    // Insert data into the binary search tree
-                    bst.insert(contactData[0].trim(), contactData[1].trim(), contactData[2].trim(), contactData[3].trim());
+        Path path = Path.of(csvFilePath);
+        try {
+            int count = 0;
+            boolean sorted = true; // Whether the contacts are sorted by last name, ignoring case
+            try (ContactReader contacts = new ContactReader(path, false)) {
+                String previous = null;
+                while (contacts.hasNext()) {
+                    String lastName = contacts.next()[1];
+                    sorted &= previous == null || previous.compareToIgnoreCase(lastName) <= 0;
+                    previous = lastName;
+                    count++;
+                }
+            }
+            try (ContactReader contacts = new ContactReader(path, true)) {
+                if (sorted) {
+                    index.insertSorted(contacts, count);
                 } else {
-                    // Print error message for invalid data
-                    System.err.println("Invalid data format: " + line);
+                    // Insert data in file order, which rebuilds the index saved by saveToCSV
+                    while (contacts.hasNext()) {
+                        String[] contactData = contacts.next();
+                        index.insert(contactData[0], contactData[1], contactData[2], contactData[3]);
+                    }
                 }
             }
-        } catch (IOException e) {
-            // Print error message for file reading error
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            // Print error message for file reading error, or for a file that changed between the two passes
             System.err.println("Error reading CSV file.");
         }
     }
@@ -52,7 +161,7 @@ public class ContactManagementSystem {
      */
     private void saveToCSV() {
         // Get contact data as a list
-        List<String> contactData = bst.toList();
+        List<String> contactData = index.toList();
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvFilePath))) {
             // Write each contact data to the CSV file
             for (String data : contactData) {
@@ -98,27 +207,27 @@ public class ContactManagementSystem {
                 case 1:
                     // Handle option 1 (Display contacts - Preorder)
                     System.out.println("Displaying contacts (Preorder):");
-                    bst.printPreOrder();
+                    index.printPreOrder();
                     break;
                 case 2:
                     // Handle option 2 (Display contacts - Inorder)
                     System.out.println("Displaying contacts (Inorder):");
-                    bst.printInOrder();
+                    index.printInOrder();
                     break;
                 case 3:
                     // Handle option 3 (Display contacts - Postorder)
                     System.out.println("Displaying contacts (Postorder):");
-                    bst.printPostOrder();
+                    index.printPostOrder();
                     break;
                 case 4:
                     // Handle option 4 (Search for a contact)
                     System.out.println("Enter the name of the contact you want to search for: ");
-                    bst.search(scanner.nextLine());
+                    index.search(scanner.nextLine());
                     break;
                 case 5:
                     // Handle option 5 (Delete a contact)
                     System.out.println("Enter the last name of the contact you want to delete: ");
-                    bst.delete(scanner.nextLine());
+                    index.delete(scanner.nextLine());
                     break;
                 case 6:
                     exit = true; // Set exit to true to terminate the loop
@@ -136,6 +245,10 @@ public class ContactManagementSystem {
 
     public static void main(String[] args) {
         ContactManagementSystem cms = new ContactManagementSystem();
+        if (args.length > 0 && args[0].equals("--btree")) { // Stores contacts in a B+-tree of the given fan-out
+            cms = new ContactManagementSystem("contacts.csv",
+                    args.length > 1 ? new BPlusTree(Integer.parseInt(args[1])) : new BPlusTree());
+        }
         cms.run();
     }
 }
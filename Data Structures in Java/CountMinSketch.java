@@ -0,0 +1,111 @@
+/**
+ * Represents a Count-Min Sketch, a fixed-size table of counters that estimates word frequencies.
+ * With a width of at least e / epsilon and a depth of at least ln(1 / delta), the estimate of a word
+ * never falls below its true count and exceeds it by more than epsilon * N with probability at most delta,
+ * where N is the total number of words counted. The memory used is width * depth counters,
+ * independent of the size of the vocabulary.
+ *
+ * The rows are indexed by hash functions derived from a 64-bit hash of the characters of the word,
+ * not from String.hashCode(), so that two words colliding on 32 bits do not collide in every row.
+ * Counters are longs, like the total, so they cannot overflow however long the stream is.
+ */
+public class CountMinSketch {
+    private static final long OFFSET_BASIS = 0xCBF29CE484222325L; // Initial value of the FNV-1a word hash
+    private static final long PRIME = 0x100000001B3L; // Multiplier of the FNV-1a word hash
+
+    private final int width; // Number of counters per row, a power of two
+    private final int depth; // Number of rows, each indexed by a different hash function
+    private final long[] table; // The counters, row by row
+    private long total; // Total number of words counted
+
+    /**
+     * Constructs a sketch for the given error bounds.
+     *
+     * @param epsilon The maximum overestimate, as a fraction of the total number of words counted.
+     * @param delta The probability of an estimate exceeding the maximum overestimate.
+     */
+    public CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("epsilon and delta must be between 0 and 1");
+        }
+        int minWidth = (int) Math.ceil(Math.E / epsilon);
+        this.width = Integer.highestOneBit(minWidth) == minWidth ? minWidth : Integer.highestOneBit(minWidth) << 1;
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.table = new long[width * depth];
+        this.total = 0;
+    }
+
+    /**
+     * Returns the total number of words counted.
+     *
+     * @return the total number of words counted
+     */
+    public long total() {
+        return this.total;
+    }
+
+    /**
+     * Returns the number of bytes taken by the counters.
+     *
+     * @return the size of the counter table in bytes
+     */
+    public long memoryBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    /**
+     * Counts one occurrence of the word held in the first len characters of the buffer.
+     *
+     * @param buf The buffer containing the word.
+     * @param len The length of the word.
+     */
+    public void add(char[] buf, int len) {
+        long hash = OFFSET_BASIS;
+        for (int i = 0; i < len; i++) {
+            hash = (hash ^ buf[i]) * PRIME;
+        }
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+        int mask = width - 1;
+        for (int row = 0; row < depth; row++) {
+            table[row * width + ((h1 + row * h2) & mask)]++;
+        }
+        total++;
+    }
+
+    /**
+     * Returns the estimated frequency count of a word.
+     *
+     * @param word The word to estimate the frequency count of.
+     * @return an estimate that is never below the true count
+     */
+    public long estimate(String word) {
+        long hash = OFFSET_BASIS;
+        for (int i = 0; i < word.length(); i++) {
+            hash = (hash ^ word.charAt(i)) * PRIME;
+        }
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+        int mask = width - 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, table[row * width + ((h1 + row * h2) & mask)]);
+        }
+        return min;
+    }
+
+    /**
+     * Mixes every bit of a 64-bit FNV-1a word hash into every other, with the 64-bit finalizer of MurmurHash3,
+     * so that the two halves the row hash functions are derived from are independent.
+     *
+     * @param hash The hash to mix.
+     * @return the mixed hash
+     */
+    private static long mix(long hash) {
+        long x = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        x = (x ^ (x >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return x ^ (x >>> 33);
+    }
+}
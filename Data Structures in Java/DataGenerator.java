@@ -0,0 +1,288 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic input files for the programs of this project: contact CSVs for ContactManagementSystem,
+ * Zipfian text corpora for Dictionary and expression files for Solver.
+ * Every generator is deterministic, the same size and seed always give the same data,
+ * so measurements taken on different versions of the code are comparable.
+ */
+public class DataGenerator {
+    private static final String[] FIRST_NAMES = {
+        "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+        "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Emin", "Ayse"
+    };
+    private static final char[] OPERATORS = {'+', '-', '*', '/'};
+
+    /**
+     * The order in which the last names of generated contacts arrive, which decides the shape of a BST built from them.
+     */
+    public enum KeyOrder {
+        RANDOM, // Distinct last names in random order, which gives a tree of logarithmic height
+        SORTED, // Distinct last names in ascending order, which degenerates a BST into a list
+        SKEWED // Last names drawn from a small Zipfian pool, so a few names repeat very often
+    }
+
+    /**
+     * Draws ranks from 0 to n - 1, where rank r is drawn with probability proportional to 1 / (r + 1)^skew.
+     */
+    public static class ZipfSampler {
+        private final double[] cumulative; // Sum of the weights of the ranks up to each rank
+        private final Random random; // The source of randomness
+
+        /**
+         * Constructs a sampler over the given number of ranks.
+         *
+         * @param n The number of ranks.
+         * @param skew The Zipf exponent.
+         * @param random The source of randomness.
+         */
+        public ZipfSampler(int n, double skew, Random random) {
+            this.cumulative = new double[n];
+            this.random = random;
+            double sum = 0;
+            for (int r = 0; r < n; r++) {
+                sum += 1 / Math.pow(r + 1, skew);
+                cumulative[r] = sum;
+            }
+        }
+
+        /**
+         * Draws the next rank.
+         *
+         * @return a rank between 0 and n - 1
+         */
+        public int next() {
+            double u = random.nextDouble() * cumulative[cumulative.length - 1];
+            int lo = 0;
+            int hi = cumulative.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cumulative[mid] < u) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Returns the letters-only word used for the given rank of a synthetic corpus.
+     *
+     * @param rank The rank of the word.
+     * @return the word
+     */
+    public static String syntheticWord(int rank) {
+        StringBuilder word = new StringBuilder("w");
+        do {
+            word.append((char) ('a' + rank % 26));
+            rank /= 26;
+        } while (rank > 0);
+        return word.toString();
+    }
+
+    /**
+     * Generates contacts that pass the validation of BST.insert.
+     *
+     * @param count The number of contacts.
+     * @param order The order of the last names.
+     * @param seed The seed of the generator.
+     * @return the contacts, each as first name, last name, phone number and email address
+     */
+    public static List<String[]> contacts(int count, KeyOrder order, long seed) {
+        Random random = new Random(seed);
+        String[] lastNames = new String[count];
+        ZipfSampler pool = order == KeyOrder.SKEWED ? new ZipfSampler(1000, 1.1, random) : null;
+        for (int i = 0; i < count; i++) {
+            lastNames[i] = capitalize(syntheticWord(pool != null ? pool.next() : i));
+        }
+        if (order == KeyOrder.RANDOM) { // Fisher-Yates shuffle
+            for (int i = count - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                String name = lastNames[i];
+                lastNames[i] = lastNames[j];
+                lastNames[j] = name;
+            }
+        } else if (order == KeyOrder.SORTED) {
+            Arrays.sort(lastNames, String.CASE_INSENSITIVE_ORDER);
+        }
+
+        List<String[]> contacts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String phoneNumber = String.format("%010d", (long) (random.nextDouble() * 1e10));
+            String emailAddress = (firstName + "." + lastNames[i]).toLowerCase() + "@example.com";
+            contacts.add(new String[]{firstName, lastNames[i], phoneNumber, emailAddress});
+        }
+        return contacts;
+    }
+
+    /**
+     * Writes generated contacts to a CSV file in the format read by ContactManagementSystem.
+     *
+     * @param path The path of the file.
+     * @param count The number of contacts.
+     * @param order The order of the last names.
+     * @param seed The seed of the generator.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeContacts(Path path, int count, KeyOrder order, long seed) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            for (String[] contact : contacts(count, order, seed)) {
+                writer.write(String.join(",", contact));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes a text corpus whose words follow a Zipfian distribution, as natural language roughly does.
+     * Lines hold about a dozen words, some starting with a capital letter or ending with punctuation,
+     * so the tokenizer has to lowercase and drop characters as it does on real text.
+     *
+     * @param path The path of the file.
+     * @param words The number of words.
+     * @param distinct The number of distinct words to draw from.
+     * @param skew The Zipf exponent.
+     * @param seed The seed of the generator.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeText(Path path, long words, int distinct, double skew, long seed) throws IOException {
+        Random random = new Random(seed);
+        ZipfSampler sampler = new ZipfSampler(distinct, skew, random);
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            int lineLength = 0;
+            int wordsPerLine = 8 + random.nextInt(8);
+            for (long i = 0; i < words; i++) {
+                String word = syntheticWord(sampler.next());
+                if (lineLength == 0) {
+                    word = capitalize(word);
+                } else {
+                    writer.write(' ');
+                }
+                writer.write(word);
+                if (++lineLength == wordsPerLine || i == words - 1) {
+                    writer.write(random.nextInt(4) == 0 ? "?" : ".");
+                    writer.newLine();
+                    lineLength = 0;
+                    wordsPerLine = 8 + random.nextInt(8);
+                } else if (random.nextInt(10) == 0) {
+                    writer.write(',');
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a file of infix expressions in the format read by Solver.
+     * About one line in twenty contains a syntax error, so the error paths are exercised as well.
+     *
+     * @param path The path of the file.
+     * @param lines The number of lines.
+     * @param maxOperands The highest number of operands in a line.
+     * @param seed The seed of the generator.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeExpressions(Path path, int lines, int maxOperands, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            for (int i = 0; i < lines; i++) {
+                writer.write(expression(random, maxOperands));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Generates a single infix expression.
+     *
+     * @param random The source of randomness.
+     * @param maxOperands The highest number of operands.
+     * @return the expression
+     */
+    private static String expression(Random random, int maxOperands) {
+        StringBuilder line = new StringBuilder();
+        int operands = 1 + random.nextInt(maxOperands);
+        int error = random.nextInt(20) == 0 ? random.nextInt(3) : -1;
+        if (random.nextInt(10) == 0) {
+            line.append('-');
+        }
+        for (int i = 0; i < operands; i++) {
+            if (i > 0) {
+                line.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ');
+                if (error == 0 && i == operands / 2) {
+                    line.append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' '); // Two operators in a row
+                }
+            }
+            if (error == 1 && i == operands / 2) {
+                line.append('x'); // A token that is not a number
+            } else if (random.nextBoolean()) {
+                line.append(random.nextInt(1000));
+            } else {
+                line.append(random.nextInt(1000)).append('.').append(random.nextInt(100));
+            }
+        }
+        if (error == 2) {
+            line.append(" +"); // An operator without its second number
+        }
+        return line.toString();
+    }
+
+    /**
+     * Returns a word with its first letter in upper case.
+     *
+     * @param word The word to capitalize.
+     * @return the capitalized word
+     */
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    /**
+     * Writes a data file from the command line.
+     * Usage:
+     *   contacts PATH COUNT [random|sorted|skewed] [SEED]
+     *   text PATH WORDS [DISTINCT] [SKEW] [SEED]
+     *   expressions PATH LINES [MAX_OPERANDS] [SEED]
+     *
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: DataGenerator contacts|text|expressions PATH SIZE [OPTIONS...]");
+            return;
+        }
+        Path path = Path.of(args[1]);
+        try {
+            switch (args[0]) {
+                case "contacts" -> writeContacts(path, Integer.parseInt(args[2]),
+                        args.length > 3 ? KeyOrder.valueOf(args[3].toUpperCase()) : KeyOrder.RANDOM,
+                        args.length > 4 ? Long.parseLong(args[4]) : 42);
+                case "text" -> writeText(path, Long.parseLong(args[2]),
+                        args.length > 3 ? Integer.parseInt(args[3]) : 100_000,
+                        args.length > 4 ? Double.parseDouble(args[4]) : 1.1,
+                        args.length > 5 ? Long.parseLong(args[5]) : 42);
+                case "expressions" -> writeExpressions(path, Integer.parseInt(args[2]),
+                        args.length > 3 ? Integer.parseInt(args[3]) : 8,
+                        args.length > 4 ? Long.parseLong(args[4]) : 42);
+                default -> {
+                    System.err.println("Error: unknown data set '" + args[0] + "'");
+                    return;
+                }
+            }
+            System.out.println("Wrote " + path);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: invalid argument: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error: could not write " + path + ": " + e.getMessage());
+        }
+    }
+}
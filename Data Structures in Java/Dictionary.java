@@ -1,23 +1,188 @@
 // Author: Emin Salih Açıkgöz ID:22050111032
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
 
 public class Dictionary {
+    private static final long PARALLEL_THRESHOLD = 1L << 24; // Files larger than this are loaded in parallel
+    private static final long CHUNK_SIZE = 1L << 22; // Size of the byte range a single task counts
+    private static final int READ_BUFFER_SIZE = 1 << 16; // Size of the buffer a task reads its range with
+    private static final long MAP_WINDOW_SIZE = 1L << 30; // Size of the window a file is memory mapped in
+    private static final long FOLLOW_POLL_MILLIS = 200; // How long the follower waits for the file to grow
+    private static final int CHECKSUM_SIZE = 4096; // Number of bytes before the indexed offset that are checksummed
+
+    /**
+     * Represents a task that counts the words in a byte range of a file.
+     * Large ranges are split in two at a line boundary and the halves are counted in parallel,
+     * then the table of the later half is merged into the table of the earlier half,
+     * which keeps the first-occurrence order of the whole range.
+     * Each task counts into a table of its own from the factory, so the words stay in the same kind of store
+     * as the dictionary's table instead of becoming Strings.
+     */
+    @SuppressWarnings("serial") // Tasks only run on the fork-join pool and are never serialized
+    private static class ChunkCounter extends RecursiveTask<WordTable> {
+        private final FileChannel channel; // The channel of the file being read
+        private final long start; // Offset of the first byte of the range
+        private final long end; // Offset after the last byte of the range
+        private final Supplier<WordTable> tables; // Creates the empty table a range is counted into
+
+        /**
+         * Constructs a task that counts the words in the given range.
+         * @param channel The channel of the file being read.
+         * @param start Offset of the first byte of the range, which must be at a line boundary.
+         * @param end Offset after the last byte of the range, which must be at a line boundary.
+         * @param tables Creates the empty table a range is counted into.
+         */
+        private ChunkCounter(FileChannel channel, long start, long end, Supplier<WordTable> tables) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.tables = tables;
+        }
+
+        @Override
+        protected WordTable compute() {
+            try {
+                if (end - start > CHUNK_SIZE) {
+                    long split = nextLineStart(start + (end - start) / 2);
+                    if (split < end) {
+                        ChunkCounter left = new ChunkCounter(channel, start, split, tables);
+                        left.fork();
+                        WordTable right = new ChunkCounter(channel, split, end, tables).compute();
+                        WordTable result = left.join();
+                        result.addAll(right);
+                        return result;
+                    }
+                }
+                return count();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Counts the words of the whole range on the current thread.
+         * @return A table of the words in the range.
+         * @throws IOException If the file cannot be read.
+         */
+        private WordTable count() throws IOException {
+            WordTable table = tables.get();
+            WordScanner scanner = new WordScanner(table);
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            long position = start;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                scanner.scan(buffer.array(), 0, read);
+                position += read;
+            }
+            scanner.endWord();
+            return table;
+        }
+
+        /**
+         * Finds the start of the first line that begins at or after the given offset.
+         * @param offset The offset to search from.
+         * @return The offset right after the next line break, or the end of the range if there is none.
+         * @throws IOException If the file cannot be read.
+         */
+        private long nextLineStart(long offset) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long position = offset;
+            while (position < end) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        return position + i + 1;
+                    }
+                }
+                position += read;
+            }
+            return end;
+        }
+    }
+
     private final String filePath;
-    private final HashMap<String, Integer> wordFreqMap;
-    private final HashMap<String, Integer> wordOrderMap;
-    private int order;
+    private final WordTable wordTable; // Words with their frequency counts, in first-occurrence order
+    private final WordArena wordArena; // The arena the words of the table are kept in, or null if they are Strings
+    private final ApproximateWordCounter approximate; // Counts words in bounded memory, or null in exact mode
+    private final WordScanner wordScanner; // Splits lines into words and counts them
+    private final ReadWriteLock lock; // Lets queries run while another thread ingests text
+    private Thread follower; // The thread tailing the file in follow mode, or null
 
-    public Dictionary(String filePath) {
+    /**
+     * Constructs a dictionary that counts words exactly or approximately.
+     * @param filePath The path of the text file.
+     * @param approximate The approximate counter to count words with, or null to count them exactly.
+     * @param wordArena The arena to keep the words in, or null to keep them as Strings.
+     */
+    private Dictionary(String filePath, ApproximateWordCounter approximate, WordArena wordArena) {
         this.filePath = filePath;
-        this.wordFreqMap = new HashMap<>();
-        this.wordOrderMap = new HashMap<>();
-        this.order = 0;
+        this.wordTable = new WordTable(wordArena);
+        this.wordArena = wordArena;
+        if (approximate == null) {
+            this.wordTable.enableRanking();
+        }
+        this.approximate = approximate;
+        this.wordScanner = new WordScanner(approximate == null ? wordTable : approximate);
+        this.lock = new ReentrantReadWriteLock();
+        this.follower = null;
+    }
+
+    public Dictionary(String filePath) {
+        this(filePath, null, null);
+    }
+
+    /**
+     * Constructs a dictionary that keeps its vocabulary in a WordArena rather than as Strings,
+     * which takes much less heap and garbage collection time for tens of millions of distinct words.
+     * Counts and rankings are the same as with the default constructor.
+     * @param filePath The path of the text file.
+     * @param offHeap Whether to keep the words outside of the Java heap.
+     */
+    public Dictionary(String filePath, boolean offHeap) {
+        this(filePath, null, new WordArena(offHeap));
+    }
+
+    /**
+     * Constructs a dictionary in approximate mode, which uses a fixed amount of memory however large the text is.
+     * Counts are estimated with the given error bounds, only the most frequent words can be queried,
+     * see ApproximateWordCounter for the accuracy and memory trade-off.
+     * @param filePath The path of the text file.
+     * @param epsilon The maximum overestimate of a count, as a fraction of the total number of words.
+     * @param delta The probability of a count exceeding the maximum overestimate.
+     * @param capacity The number of frequent words to track.
+     */
+    public Dictionary(String filePath, double epsilon, double delta, int capacity) {
+        this(filePath, new ApproximateWordCounter(epsilon, delta, capacity), null);
     }
 
     public Dictionary() {
@@ -27,29 +192,36 @@ public class Dictionary {
     /**
      * Processes a line of text,
      * extracts words,
-     * updates their frequency counts in a map,
-     * and maintains their order in another map.
+     * and updates their frequency counts and first-occurrence order in the word table.
      * @param line The line of text to process.
      */
     private void processLine(String line) {
-        line = line.replaceAll("[^a-zA-Z\\s]", "").toLowerCase().trim();
-        String[] words = line.split("\\s+");
-        for (String word : words) {
-            if (!word.isEmpty()) {
-                wordFreqMap.put(word, wordFreqMap.getOrDefault(word, 0) + 1);
-                if (!wordOrderMap.containsKey(word)) {
-                    wordOrderMap.put(word, order);
-                    order++;
-                }
-            }
-        }
+        wordScanner.scan(line);
+        wordScanner.endWord();
     }
+
     /**
      * Loads data from a text file located at the provided file path.
+     * In exact mode the word table is kept in an index file next to the text file,
+     * so later loads only read the bytes appended since.
+     * If the path is a directory, every regular file in it is loaded in name order.
      */
     private void loadTxt() {
         try {
             File file = new File(filePath);
+            if (file.isDirectory()) {
+                List<Path> paths = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(file.toPath())) {
+                    for (Path path : stream) {
+                        if (Files.isRegularFile(path)) {
+                            paths.add(path);
+                        }
+                    }
+                }
+                paths.sort(null);
+                loadFiles(paths);
+                return;
+            }
             if (!file.exists()) {
                 System.out.println("Error: txt file does not exist");
                 if (file.createNewFile()) {
@@ -60,18 +232,295 @@ public class Dictionary {
                 }
             }
 
-            BufferedReader reader = new BufferedReader(new FileReader(file));
-            String line = reader.readLine();
-            while (line != null) {
-                processLine(line);
-                line = reader.readLine();
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long covered = approximate == null ? loadIndex(channel) : 0;
+                long size = channel.size();
+                long lineEnd = lastLineEnd(channel, covered, size);
+                countRange(channel, covered, lineEnd);
+                if (approximate == null && lineEnd > covered) {
+                    WordIndex.write(indexPath(), wordTable, lineEnd, checksum(channel, lineEnd));
+                }
+                countRange(channel, lineEnd, size); // The unfinished last line is counted but not indexed
             }
 
             System.out.println("Successfully read from " + this.filePath);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the path of the index file kept next to the text file.
+     * @return The path of the index file.
+     */
+    private Path indexPath() {
+        return Path.of(filePath + ".idx");
+    }
+
+    /**
+     * Creates an empty word table that keeps its words the same way as the dictionary's table,
+     * in an arena of its own if the dictionary uses one, to count or load words before adding them all at once.
+     * @return The empty table.
+     */
+    private WordTable newTable() {
+        return wordArena == null ? new WordTable() : new WordTable(new WordArena(wordArena.isOffHeap()));
+    }
+
+    /**
+     * Loads the word table from the index file, if there is one that still matches the text file.
+     * @param channel The channel of the text file.
+     * @return The number of bytes of the text file covered by the index, or 0 if no index was loaded.
+     */
+    private long loadIndex(FileChannel channel) {
+        Path index = indexPath();
+        if (!Files.exists(index)) {
+            return 0;
+        }
+        try {
+            WordTable indexed = newTable();
+            long[] header = WordIndex.read(index, indexed);
+            long covered = header[0];
+            if (covered > channel.size() || checksum(channel, covered) != header[1]) {
+                System.out.println("Index is out of date, reading the whole file...");
+                return 0;
+            }
+            wordTable.addAll(indexed);
+            System.out.println("Loaded " + indexed.size() + " words from " + index);
+            return covered;
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Computes the checksum of the bytes right before an offset of the text file,
+     * which changes if the text file is replaced rather than appended to.
+     * @param channel The channel of the text file.
+     * @param offset The offset the checksummed bytes end at.
+     * @return The checksum.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long checksum(FileChannel channel, long offset) throws IOException {
+        long start = Math.max(0, offset - CHECKSUM_SIZE);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (offset - start));
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+            // Keep reading until the buffer is full
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        return crc.getValue();
+    }
+
+    /**
+     * Finds the end of the last complete line in a range of the text file.
+     * @param channel The channel of the text file.
+     * @param start The offset of the range, which must be at a line boundary.
+     * @param end The offset after the range.
+     * @return The offset right after the last line break of the range, or start if there is none.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long lastLineEnd(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        long position = end;
+        while (position > start) {
+            int length = (int) Math.min(buffer.capacity(), position - start);
+            position -= length;
+            buffer.clear();
+            buffer.limit(length);
+            while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+                // Keep reading until the block is complete
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Counts the words in a byte range of the text file,
+     * large ranges are split into line-aligned chunks that are counted on the common fork-join pool.
+     * The counts and first-occurrence order are the same as reading the range line by line.
+     * @param channel The channel of the text file.
+     * @param start The offset of the range, which must be at a line boundary.
+     * @param end The offset after the range.
+     * @throws IOException If the file cannot be read.
+     */
+    private void countRange(FileChannel channel, long start, long end) throws IOException {
+        if (end - start > PARALLEL_THRESHOLD && approximate == null) {
+            try {
+                wordTable.addAll(ForkJoinPool.commonPool().invoke(new ChunkCounter(channel, start, end, this::newTable)));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        long position = start;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            wordScanner.scan(buffer.array(), 0, read);
+            position += read;
+        }
+        wordScanner.endWord();
+    }
+
+    /**
+     * Loads a list of text files in the given order by memory mapping them.
+     * Words are scanned straight from the mapped bytes, so no String is created per line.
+     * Files larger than the mapping window are remapped window by window,
+     * which allows files larger than 2 GB.
+     * @param paths The paths of the files to load.
+     */
+    public void loadFiles(List<Path> paths) {
+        long start = System.nanoTime();
+        long bytes = 0;
+        for (Path path : paths) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                for (long position = 0; position < size; position += MAP_WINDOW_SIZE) {
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(MAP_WINDOW_SIZE, size - position));
+                    wordScanner.scan(window);
+                }
+                wordScanner.endWord(); // A word never continues into the next file
+                bytes += size;
+            } catch (IOException e) {
+                System.err.println("Error: could not read " + path + ": " + e.getMessage());
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Successfully read %d bytes from %d file(s) in %.3f s (%.2f GB/s)%n",
+                bytes, paths.size(), seconds, bytes / 1e9 / seconds);
+    }
+
+    /**
+     * Starts following the text file: the words already in it and every line appended later
+     * are counted on a background thread, while queries keep being answered.
+     * A word at the very end of the file is only counted once the text after it arrives.
+     */
+    public void follow() {
+        File file = new File(filePath);
+        try {
+            if (!file.exists() && file.createNewFile()) {
+                System.out.println("Error: txt file does not exist");
+                System.out.println("Creating empty file...");
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
 
-            reader.close();
+        follower = new Thread(() -> tail(file.toPath()), "dictionary-follower");
+        follower.setDaemon(true);
+        follower.start();
+        System.out.println("Following " + this.filePath);
+    }
+
+    /**
+     * Stops following the text file.
+     */
+    public void stopFollowing() {
+        if (follower != null) {
+            follower.interrupt();
+            follower = null;
+        }
+    }
+
+    /**
+     * Reads the file from the start and keeps reading the bytes appended to it until interrupted.
+     * When the file shrinks below what was read, it was truncated and is read again from the start.
+     * When another file takes its path, as log rotation does, the new file is opened and read from the start.
+     * @param path The path of the file to tail.
+     */
+    private void tail(Path path) {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            Object fileKey = fileKey(path);
+            long position = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read > 0) {
+                    lock.writeLock().lock();
+                    try {
+                        wordScanner.scan(buffer.array(), 0, read);
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    position += read;
+                    continue;
+                }
+                if (channel.size() < position) {
+                    System.out.println("Followed file was truncated, reading it again from the start");
+                } else if (Files.exists(path) && !Objects.equals(fileKey(path), fileKey)) {
+                    System.out.println("Followed file was replaced, reading the new file from the start");
+                    channel.close();
+                    channel = FileChannel.open(path, StandardOpenOption.READ);
+                    fileKey = fileKey(path);
+                } else {
+                    Thread.sleep(FOLLOW_POLL_MILLIS);
+                    continue;
+                }
+                lock.writeLock().lock();
+                try {
+                    wordScanner.endWord(); // A word cut by the truncation is not joined to the new text
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                position = 0;
+            }
         } catch (IOException e) {
             System.err.println("Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the key that identifies the file at a path, which changes when another file is moved to the path.
+     * @param path The path of the file.
+     * @return The file key, or null if the file system does not provide one.
+     * @throws IOException If the attributes of the file cannot be read.
+     */
+    private static Object fileKey(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * Counts every line of a stream of text as it arrives, until the stream ends.
+     * Queries can run on other threads while the lines are being counted.
+     * @param reader The reader to read the lines from.
+     * @throws IOException If the stream cannot be read.
+     */
+    public void ingestLines(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        while (line != null) {
+            lock.writeLock().lock();
+            try {
+                processLine(line);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            line = reader.readLine();
         }
     }
 
@@ -80,8 +529,13 @@ public class Dictionary {
      * @param word The word to retrieve the frequency count for.
      * @return The frequency count of the word, or 0 if the word is not found.
      */
-    private int getCount(String word) {
-        return this.wordFreqMap.getOrDefault(word, 0);
+    private long getCount(String word) {
+        lock.readLock().lock();
+        try {
+            return approximate == null ? this.wordTable.getCount(word) : approximate.getCount(word);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -106,21 +560,37 @@ public class Dictionary {
         return result.toString();
     }
 
+    /**
+     * Returns the k most or least frequent words, ties broken by first-occurrence order.
+     * The words are read off the ends of the word table's frequency ranking, so nothing is sorted.
+     * In approximate mode only the most frequent words are tracked and returned.
+     * @param descending True to put the most frequent words first, false for the least frequent.
+     * @param k The number of words to retrieve.
+     * @return At most k ranked words.
+     */
+    private String[] rankedWords(boolean descending, int k) {
+        lock.readLock().lock();
+        try {
+            if (approximate != null) {
+                return approximate.mostFrequent(k);
+            }
+            int[] indices = descending ? wordTable.mostFrequent(k) : wordTable.leastFrequent(k);
+            String[] words = new String[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                words[i] = wordTable.wordAt(indices[i]);
+            }
+            return words;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * Retrieves the most frequent words up to a specified amount.
      * @param k The number of the most frequent words to retrieve.
      */
     private void getMostFrequentWords(int k) {
-        String[] mostFreq = wordFreqMap.keySet().toArray(new String[0]);
-
-        // Sort by frequency and then by order if the freq is the same
-        Arrays.sort(mostFreq, (a, b) -> {
-            int freqCompare = wordFreqMap.get(b).compareTo(wordFreqMap.get(a));
-            if (freqCompare == 0) {
-                return wordOrderMap.get(a).compareTo(wordOrderMap.get(b));
-            }
-            return freqCompare;
-        });
+        String[] mostFreq = rankedWords(true, k);
 
         int n = Math.min(mostFreq.length, k);
         if (n == 1) {
@@ -135,16 +605,11 @@ public class Dictionary {
      * @param k The number of the least frequent words to retrieve.
      */
     private void getLeastFrequentWords(int k) {
-        String[] leastFreq = wordFreqMap.keySet().toArray(new String[0]);
-
-        // Sort by frequency and then by order if the freq is the same
-        Arrays.sort(leastFreq, (a, b) -> {
-            int freqCompare = wordFreqMap.get(a).compareTo(wordFreqMap.get(b));
-            if (freqCompare == 0) {
-                return wordOrderMap.get(a).compareTo(wordOrderMap.get(b));
-            }
-            return freqCompare;
-        });
+        if (approximate != null) {
+            System.err.println("Error: least frequent words are not available in approximate mode");
+            return;
+        }
+        String[] leastFreq = rankedWords(false, k);
 
         int n = Math.min(leastFreq.length, k);
         if (n == 1) {
@@ -159,6 +624,23 @@ public class Dictionary {
      */
     public void run() {
         loadTxt();
+        menu();
+    }
+
+    /**
+     * Runs the program in follow mode, the text file keeps being counted as it grows
+     * while the user interacts with the interface.
+     */
+    public void runFollowing() {
+        follow();
+        menu();
+        stopFollowing();
+    }
+
+    /**
+     * Displays a console menu and answers the user's queries.
+     */
+    private void menu() {
         int option = -1;
         Scanner scan = new Scanner(System.in);
         while (option != 4) {
@@ -231,7 +713,19 @@ public class Dictionary {
     }
 
     public static void main(String[] args) {
-        Dictionary dict = new Dictionary();
-        dict.run();
+        List<String> options = Arrays.asList(args);
+        Dictionary dict;
+        if (options.contains("--approximate")) {
+            dict = new Dictionary("sentences.txt", 0.0001, 0.01, 10000);
+        } else if (options.contains("--arena") || options.contains("--off-heap")) {
+            dict = new Dictionary("sentences.txt", options.contains("--off-heap"));
+        } else {
+            dict = new Dictionary();
+        }
+        if (options.contains("--follow")) {
+            dict.runFollowing();
+        } else {
+            dict.run();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,308 @@
+import java.util.Arrays;
+
+/**
+ * Represents a ranking of words by frequency count that is kept up to date as words are counted.
+ * Words are grouped into buckets of equal count, the buckets form a doubly linked list sorted by count,
+ * and the words of a bucket form a doubly linked list in the order they reached its count.
+ * Counting a word moves it to the end of the bucket of its new count, which is O(1) when counts grow by one.
+ *
+ * Ties are broken by first-occurrence order when the ranking is read. A bucket remembers whether its words
+ * are still in first-occurrence order, as the bucket of new words always is; otherwise the buckets that fit
+ * in the result are sorted, and the earliest words of the bucket at the boundary are selected with a heap.
+ * Reading the k most or least frequent words is then O(k log k), plus O(b log k) for an unsorted boundary
+ * bucket of b words, without sorting the vocabulary. Reading does not modify the ranking.
+ */
+public class FrequencyBuckets {
+
+    /**
+     * Represents the group of words sharing a frequency count.
+     */
+    private static class Bucket {
+        private int count; // The frequency count shared by the words of the bucket
+        private int first; // The earliest word of the bucket
+        private int last; // The latest word of the bucket
+        private int size; // The number of words in the bucket
+        private boolean sorted; // True if the words of the bucket are in first-occurrence order
+        private Bucket prev; // The bucket with the next lower count
+        private Bucket next; // The bucket with the next higher count
+
+        /**
+         * Constructs an empty bucket for the given count.
+         *
+         * @param count the frequency count of the bucket
+         */
+        private Bucket(int count) {
+            this.count = count;
+            this.first = -1;
+            this.last = -1;
+            this.size = 0;
+            this.sorted = true;
+        }
+    }
+
+    private Bucket head; // The bucket with the lowest count
+    private Bucket tail; // The bucket with the highest count
+    private Bucket[] bucketOf; // The bucket of each word, by first-occurrence index
+    private int[] prevWord; // The previous word in the same bucket, or -1
+    private int[] nextWord; // The next word in the same bucket, or -1
+
+    /**
+     * Constructs an empty ranking.
+     */
+    public FrequencyBuckets() {
+        this.head = null;
+        this.tail = null;
+        this.bucketOf = new Bucket[1024];
+        this.prevWord = new int[1024];
+        this.nextWord = new int[1024];
+    }
+
+    /**
+     * Constructs a ranking of the given counts in O(n log n).
+     *
+     * @param counts The frequency count of each word, by first-occurrence index.
+     * @param size The number of words.
+     */
+    public FrequencyBuckets(int[] counts, int size) {
+        this();
+        ensureCapacity(size - 1);
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (long) counts[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+        for (long key : keys) {
+            int count = (int) (key >>> 32);
+            if (tail == null || tail.count != count) {
+                Bucket bucket = new Bucket(count);
+                bucket.prev = tail;
+                if (tail == null) {
+                    head = bucket;
+                } else {
+                    tail.next = bucket;
+                }
+                tail = bucket;
+            }
+            append(tail, (int) key);
+        }
+    }
+
+    /**
+     * Moves a word to the bucket of its new count.
+     *
+     * @param index The first-occurrence index of the word.
+     * @param oldCount The count of the word before the update, or 0 if the word is new.
+     * @param newCount The count of the word after the update, which must be higher than oldCount.
+     */
+    public void update(int index, int oldCount, int newCount) {
+        ensureCapacity(index);
+
+        Bucket from = oldCount == 0 ? null : bucketOf[index];
+        if (from != null && from.first == from.last
+                && (from.next == null || from.next.count > newCount)) {
+            from.count = newCount; // The word is alone and stays between the same neighbours
+            return;
+        }
+
+        Bucket prev = from; // The last bucket known to have a lower count than newCount
+        Bucket next = from == null ? head : from.next;
+        while (next != null && next.count < newCount) {
+            prev = next;
+            next = next.next;
+        }
+
+        Bucket to;
+        if (next != null && next.count == newCount) {
+            to = next;
+        } else {
+            to = new Bucket(newCount);
+            to.prev = prev;
+            to.next = next;
+            if (prev == null) {
+                head = to;
+            } else {
+                prev.next = to;
+            }
+            if (next == null) {
+                tail = to;
+            } else {
+                next.prev = to;
+            }
+        }
+
+        if (from != null) {
+            remove(from, index);
+            if (from.first == -1) {
+                unlink(from);
+            }
+        }
+        append(to, index);
+    }
+
+    /**
+     * Returns the most frequent words, ties broken by first-occurrence order.
+     *
+     * @param k The maximum number of words to return.
+     * @return the indices of at most k words, most frequent first
+     */
+    public int[] highest(int k) {
+        int[] result = new int[k];
+        int n = 0;
+        for (Bucket bucket = tail; bucket != null && n < k; bucket = bucket.prev) {
+            n = collect(bucket, result, n);
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Returns the least frequent words, ties broken by first-occurrence order.
+     *
+     * @param k The maximum number of words to return.
+     * @return the indices of at most k words, least frequent first
+     */
+    public int[] lowest(int k) {
+        int[] result = new int[k];
+        int n = 0;
+        for (Bucket bucket = head; bucket != null && n < k; bucket = bucket.next) {
+            n = collect(bucket, result, n);
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Returns a least frequent word, the one that reached the lowest count first if several share it.
+     *
+     * @return the index of the word, or -1 if the ranking is empty
+     */
+    public int lowest() {
+        return head == null ? -1 : head.first;
+    }
+
+    /**
+     * Copies the earliest words of a bucket into the result, in first-occurrence order, until it is full.
+     *
+     * @param bucket The bucket to copy from.
+     * @param result The array to copy into.
+     * @param n The number of words already in the result.
+     * @return the number of words in the result after copying
+     */
+    private int collect(Bucket bucket, int[] result, int n) {
+        int room = result.length - n;
+        if (bucket.sorted || bucket.size <= room) {
+            int start = n;
+            for (int word = bucket.first; word != -1 && n < result.length; word = nextWord[word]) {
+                result[n++] = word;
+            }
+            if (!bucket.sorted) {
+                Arrays.sort(result, start, n);
+            }
+            return n;
+        }
+
+        int[] heap = new int[room]; // Max-heap of the earliest words seen so far
+        int size = 0;
+        for (int word = bucket.first; word != -1; word = nextWord[word]) {
+            if (size < room) {
+                int child = size++;
+                while (child > 0 && heap[(child - 1) / 2] < word) { // Sifts the word up
+                    heap[child] = heap[(child - 1) / 2];
+                    child = (child - 1) / 2;
+                }
+                heap[child] = word;
+            } else if (word < heap[0]) {
+                int parent = 0;
+                while (2 * parent + 1 < room) { // Sifts the word down from the root
+                    int child = 2 * parent + 1;
+                    if (child + 1 < room && heap[child + 1] > heap[child]) {
+                        child++;
+                    }
+                    if (heap[child] <= word) {
+                        break;
+                    }
+                    heap[parent] = heap[child];
+                    parent = child;
+                }
+                heap[parent] = word;
+            }
+        }
+        Arrays.sort(heap);
+        System.arraycopy(heap, 0, result, n, room);
+        return n + room;
+    }
+
+    /**
+     * Places a word after every other word of a bucket.
+     *
+     * @param bucket The bucket to place the word in.
+     * @param index The first-occurrence index of the word.
+     */
+    private void append(Bucket bucket, int index) {
+        bucket.sorted &= bucket.last < index;
+        bucket.size++;
+        prevWord[index] = bucket.last;
+        nextWord[index] = -1;
+        if (bucket.last == -1) {
+            bucket.first = index;
+        } else {
+            nextWord[bucket.last] = index;
+        }
+        bucket.last = index;
+        bucketOf[index] = bucket;
+    }
+
+    /**
+     * Takes a word out of a bucket.
+     *
+     * @param bucket The bucket holding the word.
+     * @param index The first-occurrence index of the word.
+     */
+    private void remove(Bucket bucket, int index) {
+        if (--bucket.size == 0) {
+            bucket.sorted = true;
+        }
+        int before = prevWord[index];
+        int after = nextWord[index];
+        if (before == -1) {
+            bucket.first = after;
+        } else {
+            nextWord[before] = after;
+        }
+        if (after == -1) {
+            bucket.last = before;
+        } else {
+            prevWord[after] = before;
+        }
+    }
+
+    /**
+     * Removes an empty bucket from the list.
+     *
+     * @param bucket The bucket to remove.
+     */
+    private void unlink(Bucket bucket) {
+        if (bucket.prev == null) {
+            head = bucket.next;
+        } else {
+            bucket.prev.next = bucket.next;
+        }
+        if (bucket.next == null) {
+            tail = bucket.prev;
+        } else {
+            bucket.next.prev = bucket.prev;
+        }
+    }
+
+    /**
+     * Grows the per-word arrays so they can hold the given index.
+     *
+     * @param index The highest index to hold.
+     */
+    private void ensureCapacity(int index) {
+        if (index >= bucketOf.length) {
+            int capacity = Math.max(index + 1, bucketOf.length * 2);
+            bucketOf = Arrays.copyOf(bucketOf, capacity);
+            prevWord = Arrays.copyOf(prevWord, capacity);
+            nextWord = Arrays.copyOf(nextWord, capacity);
+        }
+    }
+}
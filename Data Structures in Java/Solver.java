@@ -1,22 +1,233 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 // Made by Emin Salih Açıkgöz. Student ID: 22050111032
 /**
  * Represents a system that allows us to solve operations from a txt file.
  */
 public class Solver {
-    private Stack<Character> Operators;//Operator Stack
-    private Stack<Double> Operands; //Operand Stack
+    private static final byte PUSH = 0; // Opcode that pushes the next constant onto the operand stack
+    private static final byte LOAD = 1; // Opcode that pushes the value of the next loaded variable
+    private static final int DEFAULT_CACHE_SIZE = 1024; // Number of compiled lines kept by default
+    private static final int BATCH_CHUNK_LINES = 4096; // Number of lines a batch worker solves at a time
+    private static final int STREAM_BUFFER_SIZE = 1 << 20; // Number of bytes read or written at a time by streaming
+    private static final long MAX_EXACT_MANTISSA = 1L << 53; // Integers up to this value are exact doubles
+    private static final double[] POWERS_OF_TEN = { // The powers of ten that are exact doubles
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * The types of syntax error a line may contain, each with the message printed for it.
+     */
+    public enum ErrorType {
+        EMPTY_LINE("Error: Received token is neither an operator nor a number."), // The line is blank
+        INVALID_TOKEN("Error: Received token is neither an operator nor a number."), // A token is not a number
+        UNEXPECTED_OPERATOR("Error: Expected a number token, received an operator."), // Two operators in a row
+        UNEXPECTED_NUMBER("Error: Expected an operator token, received a number."), // Two numbers in a row
+        MISSING_OPERAND("Error: Input contains extra operators or is missing numbers."); // Ends with an operator
+
+        private final String message; // The message printed for the error
+
+        /**
+         * Constructs an error type.
+         *
+         * @param message The message printed for the error.
+         */
+        ErrorType(String message) {
+            this.message = message;
+        }
+
+        /**
+         * Returns the message printed for the error.
+         *
+         * @return The message.
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Represents the outcome of solving a line: either its value or the type of syntax error found in it.
+     */
+    public static class Result {
+        private final double value; // The value of the line, or NaN if the line has an error
+        private final ErrorType error; // The syntax error of the line, or null if the line is valid
+
+        /**
+         * Constructs a result.
+         *
+         * @param value The value of the line.
+         * @param error The syntax error of the line, or null if the line is valid.
+         */
+        private Result(double value, ErrorType error) {
+            this.value = value;
+            this.error = error;
+        }
+
+        /**
+         * Returns true if the line has a syntax error, false otherwise.
+         *
+         * @return Whether the line has an error.
+         */
+        public boolean isError() {
+            return error != null;
+        }
+
+        /**
+         * Returns the value of the line.
+         *
+         * @return The value, or NaN if the line has an error.
+         */
+        public double getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the syntax error of the line.
+         *
+         * @return The type of the error, or null if the line is valid.
+         */
+        public ErrorType getError() {
+            return error;
+        }
+
+        /**
+         * Returns the output printed for the line.
+         *
+         * @return The value of the line, or the message of its error.
+         */
+        @Override
+        public String toString() {
+            return error != null ? error.getMessage() : String.valueOf(value);
+        }
+    }
+
+    /**
+     * Represents a compiled line: either a postfix program or the syntax error found in the line.
+     * The program is a sequence of opcodes, where PUSH pushes the next constant, LOAD pushes the value
+     * of the next loaded variable and an operator symbol pops two operands and pushes the result of the operation.
+     */
+    private static class Program {
+        private final byte[] ops; // The opcodes of the program
+        private final double[] constants; // The constants pushed by the PUSH opcodes, in order
+        private final int[] loads; // The variables pushed by the LOAD opcodes, in order, as indices into variables
+        private final String[] variables; // The distinct variable names of the program
+        private final ErrorType error; // The syntax error of the line, or null if the line is valid
+        private final int operatorDepth; // The most operators held by the operator stack while compiling
+        private final int operandDepth; // The most operands held by the operand stack while evaluating
+
+        /**
+         * Constructs a valid program.
+         *
+         * @param ops The opcodes of the program.
+         * @param constants The constants of the program.
+         * @param loads The variable indices of the LOAD opcodes.
+         * @param variables The variable names of the program.
+         * @param operatorDepth The most operators held by the operator stack while compiling.
+         * @param operandDepth The most operands held by the operand stack while evaluating.
+         */
+        private Program(byte[] ops, double[] constants, int[] loads, String[] variables,
+                        int operatorDepth, int operandDepth) {
+            this.ops = ops;
+            this.constants = constants;
+            this.loads = loads;
+            this.variables = variables;
+            this.error = null;
+            this.operatorDepth = operatorDepth;
+            this.operandDepth = operandDepth;
+        }
+
+        /**
+         * Constructs the program of a line containing a syntax error.
+         *
+         * @param error The type of the error.
+         */
+        private Program(ErrorType error) {
+            this.ops = null;
+            this.constants = null;
+            this.loads = null;
+            this.variables = null;
+            this.error = error;
+            this.operatorDepth = 0;
+            this.operandDepth = 0;
+        }
+    }
+
+    private final CharStack Operators;//Operator Stack
+    private final DoubleStack Operands; //Operand Stack
+    private final Map<String, Program> cache; // Compiled programs by raw line text, least recently used first
+    private byte[] opBuffer; // Scratch space the opcodes of a line are compiled into
+    private double[] constantBuffer; // Scratch space the constants of a line are compiled into
+    private int[] loadBuffer; // Scratch space the variable loads of a line are compiled into
+    private final List<String> variableBuffer; // Scratch space the variable names of a line are compiled into
+    private char[] lineBuffer; // Scratch space the characters of a line are read into
+    private int opCount; // Number of opcodes in the scratch space
+    private int constantCount; // Number of constants in the scratch space
+    private int loadCount; // Number of variable loads in the scratch space
+    private int operatorDepth; // The most operators held by the operator stack while compiling the scratch program
+    private int operandDepth; // The most operands held by the operand stack while evaluating the scratch program
+    private SolverMetrics metrics; // Metrics recorded as lines are solved, or null if disabled
 
     /**
      * Constructor for the Solver.
      * Initializes operand and operator stacks.
      */
     public Solver() {
-        this.Operands = new Stack<>();
-        this.Operators = new Stack<>();
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor for the Solver.
+     * Initializes operand and operator stacks and a cache holding up to the given number of compiled lines.
+     *
+     * @param cacheSize The maximum number of compiled lines to keep.
+     */
+    public Solver(int cacheSize) {
+        this.Operands = new DoubleStack();
+        this.Operators = new CharStack();
+        this.opBuffer = new byte[64];
+        this.constantBuffer = new double[64];
+        this.loadBuffer = new int[64];
+        this.variableBuffer = new ArrayList<>();
+        this.lineBuffer = new char[256];
+        this.metrics = null;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Program> eldest) {
+                return size() > cacheSize;
+            }
+        };
     }
 
     /**
@@ -38,63 +249,82 @@ public class Solver {
     }
 
     /**
-     * Formats a line of text to make processing it easier.
+     * Returns true if the character is a valid Operator, false otherwise.
      *
-     * @param line The line of text to be formatted.
+     * @param c The character to be examined.
      */
-    private String formatLine(String line) {
-        // Inserts spaces before and after operators to allow splitting
-        line = line.replaceAll("([+\\-*/])", " $1 ").trim();
-
-        // Handles edge case where negative numbers at the beginning (i.e. -10 + 5 or -100)
-        if (line.startsWith("-")) {
-            line = "0 " + line;
-        }
-
-        // Removes extra whitespace to make splitting possible and prevent some edge cases
-        line = line.replaceAll("\\s+", " ").trim();
-
-        return line;
+    private static boolean isOperator(char c) {
+        return c == '+' || c == '-' || c == '*' || c == '/';
     }
 
     /**
-     * Returns true if the string is a valid Operator, false otherwise.
+     * Returns true if the character separates tokens, false otherwise.
      *
-     * @param s The string to be examined.
+     * @param c The character to be examined.
      */
-    private static boolean isOperator(String s) {
-        return s.equals("+") || s.equals("-") || s.equals("*") || s.equals("/");
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
     /**
-     * Returns true if the string is a valid Operand, false otherwise.
+     * Returns true if the characters form a variable name, which is a letter or an underscore
+     * followed by letters, digits or underscores, false otherwise.
      *
-     * @param s The string to be examined.
+     * @param line The line containing the token.
+     * @param start The index of the first character of the token.
+     * @param end The index after the last character of the token.
      */
-    private static boolean isNumber(String s) {
-        boolean hasDecimalPoint = false;
-
-        if (s.isEmpty()) {
+    private static boolean isVariable(char[] line, int start, int end) {
+        char first = line[start];
+        if (!Character.isLetter(first) && first != '_') {
             return false;
         }
-
-        for (char c : s.toCharArray()) {
-            if (Character.isDigit(c)) {
-                continue;
+        for (int i = start + 1; i < end; i++) {
+            char c = line[i];
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
             }
+        }
+        return true;
+    }
 
+    /**
+     * Returns the value of a number token, which is made of ASCII digits, at least one, and at most one decimal point,
+     * so that Double.parseDouble always accepts it.
+     * When the digits, read without the decimal point, form an integer of at most 2^53 (9007199254740992),
+     * which every number of up to 15 digits does, and there are at most 22 decimals, both the integer and the power
+     * of ten are exact doubles, so the value is computed as one exact division that is correctly rounded
+     * like Double.parseDouble; anything else is handed to Double.parseDouble.
+     *
+     * @param line The line containing the token.
+     * @param start The index of the first character of the token.
+     * @param end The index after the last character of the token.
+     */
+    private static double parseNumber(char[] line, int start, int end) {
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean fraction = false;
+        for (int i = start; i < end; i++) {
+            char c = line[i];
             if (c == '.') {
-                if (hasDecimalPoint) {
-                    return false;
-                }
-                hasDecimalPoint = true;
+                fraction = true;
                 continue;
             }
-
-            return false;
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || mantissa > (MAX_EXACT_MANTISSA - digit) / 10) {
+                return Double.parseDouble(new String(line, start, end - start));
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            if (fraction) {
+                decimals++;
+            }
         }
-
-        return true;
+        if (digits == 0 || decimals >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(new String(line, start, end - start));
+        }
+        return mantissa / POWERS_OF_TEN[decimals];
     }
 
     /**
@@ -129,87 +359,480 @@ public class Solver {
     }
 
     /**
-     * Calculates the value of the equation provided in the line by using the two stacks the class contains.
-     * Using the logic of stacks the numbers are mounted to the number stack and the operators to the operator stack.
-     * The precedence of the operators is checked when attempting to perform a calculation
-     * in order to allow the operations with a higher precedence to be performed first.
-     * when we finish reading the line we do the remaining processes in order and print the resulting value.
+     * Compiles a line into a postfix program without evaluating it, reading each character once.
+     * Whitespace separates tokens, each operator is a token of its own and any other run of characters
+     * is a token that has to be a number. A line starting with a minus sign starts with an implicit zero.
+     * Using the logic of stacks the numbers are emitted straight into the program and the operators
+     * are mounted to the operator stack. The precedence of the operators is checked when an operator arrives
+     * in order to emit the operations with a higher or equal precedence first,
+     * which gives the same order of operations as solving the line directly.
+     * Syntax errors are detected in the same order as they would be while solving the line.
+     *
+     * @param line The line to be compiled.
+     * @param allowVariables True if the line may contain variables, false if it may only contain numbers.
+     */
+    private Program compile(String line, boolean allowVariables) {
+        if (lineBuffer.length < line.length()) {
+            lineBuffer = new char[line.length()];
+        }
+        line.getChars(0, line.length(), lineBuffer, 0);
+        ErrorType error = compileBuffer(lineBuffer, line.length(), allowVariables);
+        if (error != null) {
+            return new Program(error);
+        }
+        return new Program(Arrays.copyOf(opBuffer, opCount), Arrays.copyOf(constantBuffer, constantCount),
+                Arrays.copyOf(loadBuffer, loadCount), variableBuffer.toArray(new String[0]),
+                operatorDepth, operandDepth);
+    }
+
+    /**
+     * Compiles the first len characters of a buffer into the scratch buffers of the solver,
+     * as described in compile(String, boolean). The deepest operator and operand stacks the program
+     * reaches are computed along the way, since the postfix program fixes them before it is evaluated.
      *
-     * @param line The line to be solved.
+     * @param line The buffer holding the line to be compiled.
+     * @param len The length of the line.
+     * @param allowVariables True if the line may contain variables, false if it may only contain numbers.
+     * @return The syntax error of the line, or null if the program was compiled.
      */
-    private void solveLine(String line) {
-        String[] data = line.split(" ");
+    private ErrorType compileBuffer(char[] line, int len, boolean allowVariables) {
+        int pos = 0;
+        int end = len;
+        while (pos < end && line[pos] <= ' ') { // Trims the line like String.trim()
+            pos++;
+        }
+        while (end > pos && line[end - 1] <= ' ') {
+            end--;
+        }
+        if (pos == end) {
+            return ErrorType.EMPTY_LINE;
+        }
+        if (opBuffer.length < end - pos + 1) {
+            opBuffer = new byte[end - pos + 1];
+            constantBuffer = new double[end - pos + 1];
+            loadBuffer = new int[end - pos + 1];
+        }
+        opCount = 0;
+        constantCount = 0;
+        loadCount = 0;
+        operatorDepth = 0;
+        operandDepth = 0;
+        int depth = 0; // Number of operands the program holds on the operand stack at this point
+        variableBuffer.clear();
         Operators.push('#');
         boolean expectingOperator = false;
 
-        for (String s : data) {
-            if (isNumber(s)) {
-
-                if (expectingOperator) { //True if two numbers occur back to back, which is an invalid state.
-                    System.out.println("Error: Expected an operator token, received a number.");
-                    return;
-                }
-                Operands.push(Double.parseDouble(s));
-                expectingOperator = true; // Set to true as we expect an operator to occur next.
+        // Handles edge case where negative numbers at the beginning (i.e. -10 + 5 or -100)
+        if (line[pos] == '-') {
+            opBuffer[opCount++] = PUSH;
+            constantBuffer[constantCount++] = 0;
+            operandDepth = ++depth;
+            expectingOperator = true;
+        }
 
-            } else if (isOperator(s)) {
-                char symbol = s.charAt(0);
+        while (pos < end) {
+            char c = line[pos];
+            if (isWhitespace(c)) {
+                pos++;
 
+            } else if (isOperator(c)) {
                 if (!expectingOperator) { // True if two operators occur back to back, which is an invalid state.
-                    System.out.println("Error: Expected a number token, received an operator.");
-                    return;
+                    return ErrorType.UNEXPECTED_OPERATOR;
                 }
 
-                //Solve popped operations if they have a higher or equal precedence to the symbol.
-                while (!Operators.isEmpty() && getPrecedence(symbol) <= getPrecedence(Operators.peek())) {
-                    char op = Operators.pop();
-                    double num2 = Operands.pop();
-                    double num1 = Operands.pop();
-                    double result = solveOperation(num1, num2, op);
-                    Operands.push(result);
+                //Emit popped operations if they have a higher or equal precedence to the symbol.
+                while (!Operators.isEmpty() && getPrecedence(c) <= getPrecedence(Operators.peek())) {
+                    opBuffer[opCount++] = (byte) Operators.pop();
+                    depth--;
                 }
 
-                Operators.push(symbol);
+                Operators.push(c);
+                operatorDepth = Math.max(operatorDepth, Operators.size() - 1); // The dummy operator is not counted
                 expectingOperator = false; // Reset the flag as a number is expected.
+                pos++;
 
             } else {
-                //This block is entered if the string observed is not a number nor is an operator.
-                System.out.println("Error: Received token is neither an operator nor a number.");
-                return;
+                int start = pos;
+                boolean isNumber = true;
+                boolean hasDecimalPoint = false;
+                boolean hasDigit = false;
+                while (pos < end && !isWhitespace(c = line[pos]) && !isOperator(c)) {
+                    if (c == '.') {
+                        isNumber &= !hasDecimalPoint;
+                        hasDecimalPoint = true;
+                    } else if (c >= '0' && c <= '9') {
+                        hasDigit = true;
+                    } else {
+                        isNumber = false; // Other digits, such as U+0663, are not parsed by Double.parseDouble
+                    }
+                    pos++;
+                }
+                isNumber &= hasDigit; // A lone decimal point is not a number
+
+                boolean isVariable = !isNumber && allowVariables && isVariable(line, start, pos);
+                if (!isNumber && !isVariable) {
+                    //This block is entered if the token observed is not a number nor is an operator.
+                    return ErrorType.INVALID_TOKEN;
+                }
+                if (expectingOperator) { //True if two numbers occur back to back, which is an invalid state.
+                    return ErrorType.UNEXPECTED_NUMBER;
+                }
+                if (isVariable) {
+                    String name = new String(line, start, pos - start);
+                    int index = variableBuffer.indexOf(name);
+                    if (index < 0) {
+                        index = variableBuffer.size();
+                        variableBuffer.add(name);
+                    }
+                    opBuffer[opCount++] = LOAD;
+                    loadBuffer[loadCount++] = index;
+                } else {
+                    opBuffer[opCount++] = PUSH;
+                    constantBuffer[constantCount++] = parseNumber(line, start, pos);
+                }
+                operandDepth = Math.max(operandDepth, ++depth);
+                expectingOperator = true; // Set to true as we expect an operator to occur next.
             }
         }
 
-
-        //The operator stack is never empty here, but isEmpty is added for safety.
-        if (Operators.isEmpty()) {
-            System.out.println("Error: Expected operators, received empty stack.");
-            return;
+        //A line ending with an operator leaves the last operator without its second number.
+        if (!expectingOperator) {
+            return ErrorType.MISSING_OPERAND;
         }
 
-        //Process the remaining operators under the dummy operator is encountered.
+        //Emit the remaining operators until the dummy operator is encountered.
         while (Operators.peek() != '#') {
-            char op = Operators.pop();
+            opBuffer[opCount++] = (byte) Operators.pop();
+        }
+        Operators.pop();//Removes the dummy Operator
+        return null;
+    }
 
-            try {//Handles edge cases where there are not enough numbers to match to operators (Invalid syntax)
+    /**
+     * Evaluates a valid program with the operand stack.
+     *
+     * @param program The program to be evaluated.
+     * @return The value of the program.
+     */
+    private double evaluate(Program program) {
+        return evaluate(program, null, 0);
+    }
+
+    /**
+     * Evaluates a valid program with the operand stack for one row of variable bindings.
+     *
+     * @param program The program to be evaluated.
+     * @param inputs The column of each variable of the program, or null if the program has no variables.
+     * @param row The row whose values the variables take.
+     * @return The value of the program.
+     */
+    private double evaluate(Program program, double[][] inputs, int row) {
+        return evaluate(program.ops, program.ops.length, program.constants, program.loads, inputs, row);
+    }
+
+    /**
+     * Evaluates the first opCount opcodes of a valid program with the operand stack.
+     *
+     * @param ops The opcodes of the program.
+     * @param opCount The number of opcodes.
+     * @param constants The constants of the program.
+     * @param loads The variable indices of the LOAD opcodes.
+     * @param inputs The column of each variable of the program, or null if the program has no variables.
+     * @param row The row whose values the variables take.
+     * @return The value of the program.
+     */
+    private double evaluate(byte[] ops, int opCount, double[] constants, int[] loads, double[][] inputs, int row) {
+        int next = 0; // Index of the next constant to push
+        int nextLoad = 0; // Index of the next variable to load
+        for (int i = 0; i < opCount; i++) {
+            byte op = ops[i];
+            if (op == PUSH) {
+                Operands.push(constants[next++]);
+            } else if (op == LOAD) {
+                Operands.push(inputs[loads[nextLoad++]][row]);
+            } else {
                 double num2 = Operands.pop();
                 double num1 = Operands.pop();
-                double result = solveOperation(num1, num2, op);
-                Operands.push(result);
-            } catch (NullPointerException e) {
-                System.out.println("Error: Input contains extra operators or is missing numbers.");
-                return;
+                Operands.push(solveOperation(num1, num2, (char) op));
             }
         }
-        Operators.pop();//Removes the dummy Operator
-        System.out.println(Operands.pop()); //Displays the result
+        return Operands.pop();
+    }
+
+    /**
+     * Evaluates an expression over whole columns of variable bindings.
+     * The expression may contain variables, each bound to a column holding one value per row,
+     * and the result column holds the value of the expression for each row.
+     * The expression is compiled once, then each operator runs as one loop over the whole columns,
+     * which the JIT compiler can vectorize, rather than interpreting the expression row by row.
+     *
+     * @param expression The expression to be evaluated, such as "a * b + c / 2".
+     * @param columns The column of each variable, all of the same length.
+     * @return The result column.
+     * @throws IllegalArgumentException If the expression is invalid, a variable has no column
+     *                                  or the columns differ in length.
+     */
+    public double[] evaluateColumns(String expression, Map<String, double[]> columns) {
+        Program program = compile(expression, true);
+        clearStacks();
+        if (program.error != null) {
+            throw new IllegalArgumentException(program.error.getMessage());
+        }
+
+        int rows = -1;
+        double[][] inputs = new double[program.variables.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = columns.get(program.variables[i]);
+            if (inputs[i] == null) {
+                throw new IllegalArgumentException("Error: No column for variable '" + program.variables[i] + "'.");
+            }
+            if (rows >= 0 && inputs[i].length != rows) {
+                throw new IllegalArgumentException("Error: Columns differ in length.");
+            }
+            rows = inputs[i].length;
+        }
+        if (rows < 0) { // A constant expression takes its length from any given column
+            rows = columns.isEmpty() ? 0 : columns.values().iterator().next().length;
+        }
+        return evaluateColumns(program, inputs, rows);
+    }
+
+    /**
+     * Evaluates a valid program over whole columns.
+     * Constants stay scalars until they meet a column, and results are written into columns
+     * computed earlier in the program when possible, so at most one new column is created per level of nesting.
+     *
+     * @param program The program to be evaluated.
+     * @param inputs The column of each variable of the program.
+     * @param rows The number of rows.
+     * @return The result column.
+     */
+    private static double[] evaluateColumns(Program program, double[][] inputs, int rows) {
+        int depth = program.ops.length;
+        double[][] columnStack = new double[depth][]; // The column of each operand, or null for a scalar
+        double[] scalarStack = new double[depth]; // The value of each scalar operand
+        boolean[] owned = new boolean[depth]; // True if the column was computed here and can be overwritten
+        int size = 0;
+        int nextConstant = 0;
+        int nextLoad = 0;
+
+        for (byte op : program.ops) {
+            if (op == PUSH) {
+                columnStack[size] = null;
+                owned[size] = false; // Clears the flag left by an earlier column at this depth
+                scalarStack[size++] = program.constants[nextConstant++];
+            } else if (op == LOAD) {
+                columnStack[size] = inputs[program.loads[nextLoad++]];
+                owned[size++] = false;
+            } else {
+                char sign = (char) op;
+                int b = --size;
+                int a = size - 1;
+                if (columnStack[a] == null && columnStack[b] == null) {
+                    scalarStack[a] = solveOperation(scalarStack[a], scalarStack[b], sign);
+                    continue;
+                }
+                double[] out = columnStack[a] != null && owned[a] ? columnStack[a]
+                        : columnStack[b] != null && owned[b] ? columnStack[b]
+                        : new double[rows];
+                if (columnStack[a] == null) {
+                    solveColumns(scalarStack[a], columnStack[b], sign, out, rows);
+                } else if (columnStack[b] == null) {
+                    solveColumns(columnStack[a], scalarStack[b], sign, out, rows);
+                } else {
+                    solveColumns(columnStack[a], columnStack[b], sign, out, rows);
+                }
+                columnStack[a] = out;
+                owned[a] = true;
+            }
+        }
+
+        if (columnStack[0] == null) {
+            double[] result = new double[rows];
+            Arrays.fill(result, scalarStack[0]);
+            return result;
+        }
+        return owned[0] ? columnStack[0] : columnStack[0].clone();
+    }
+
+    /**
+     * Applies an operator row by row to two columns.
+     *
+     * @param a The column of first numbers.
+     * @param b The column of second numbers.
+     * @param sign The operator that dictates the operation to be performed.
+     * @param out The column the results are written to, which may be a or b.
+     * @param rows The number of rows.
+     */
+    private static void solveColumns(double[] a, double[] b, char sign, double[] out, int rows) {
+        switch (sign) {
+            case '+' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a[i] + b[i];
+                }
+            }
+            case '-' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a[i] - b[i];
+                }
+            }
+            case '*' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a[i] * b[i];
+                }
+            }
+            case '/' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a[i] / b[i];
+                }
+            }
+            default -> Arrays.fill(out, 0, rows, Double.NaN);
+        }
+    }
+
+    /**
+     * Applies an operator row by row to a column and a scalar second number.
+     *
+     * @param a The column of first numbers.
+     * @param b The second number.
+     * @param sign The operator that dictates the operation to be performed.
+     * @param out The column the results are written to, which may be a.
+     * @param rows The number of rows.
+     */
+    private static void solveColumns(double[] a, double b, char sign, double[] out, int rows) {
+        switch (sign) {
+            case '+' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a[i] + b;
+                }
+            }
+            case '-' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a[i] - b;
+                }
+            }
+            case '*' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a[i] * b;
+                }
+            }
+            case '/' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a[i] / b;
+                }
+            }
+            default -> Arrays.fill(out, 0, rows, Double.NaN);
+        }
+    }
+
+    /**
+     * Applies an operator row by row to a scalar first number and a column.
+     *
+     * @param a The first number.
+     * @param b The column of second numbers.
+     * @param sign The operator that dictates the operation to be performed.
+     * @param out The column the results are written to, which may be b.
+     * @param rows The number of rows.
+     */
+    private static void solveColumns(double a, double[] b, char sign, double[] out, int rows) {
+        switch (sign) {
+            case '+' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a + b[i];
+                }
+            }
+            case '-' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a - b[i];
+                }
+            }
+            case '*' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a * b[i];
+                }
+            }
+            case '/' -> {
+                for (int i = 0; i < rows; i++) {
+                    out[i] = a / b[i];
+                }
+            }
+            default -> Arrays.fill(out, 0, rows, Double.NaN);
+        }
+    }
+
+    /**
+     * Compiles a raw line, or takes its program from the cache if the same line was compiled before.
+     *
+     * @param line The raw line, as read from the file.
+     * @return The program of the line.
+     */
+    private Program compileCached(String line) {
+        Program program = cache.get(line);
+        if (program == null) {
+            program = compile(line, false);
+            cache.put(line, program);
+        }
+        return program;
+    }
+
+    /**
+     * Starts recording metrics as lines are solved, if it has not started yet.
+     * Lines solved with solve(String) are numbered from 1 in the order they are solved.
+     *
+     * @return The metrics of this solver.
+     */
+    public SolverMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new SolverMetrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * Calculates the value of the equation provided in the line, without printing anything.
+     *
+     * @param line The raw line to be solved.
+     * @return The resulting value, or the type of syntax error found in the line.
+     */
+    public Result solve(String line) {
+        return solve(line, metrics == null ? 0 : metrics.getLines() + 1);
+    }
+
+    /**
+     * Calculates the value of the equation provided in the line and records it in the metrics, if enabled.
+     *
+     * @param line The raw line to be solved.
+     * @param lineNumber The number of the line, which errors are recorded with.
+     * @return The resulting value, or the type of syntax error found in the line.
+     */
+    private Result solve(String line, long lineNumber) {
+        long start = metrics == null ? 0 : System.nanoTime();
+        Program program = compileCached(line);
+        Result result;
+        if (program.error != null) {
+            result = new Result(Double.NaN, program.error);
+            if (metrics != null) {
+                metrics.recordError(lineNumber, program.error, System.nanoTime() - start);
+            }
+        } else {
+            long compiled = metrics == null ? 0 : System.nanoTime();
+            result = new Result(evaluate(program), null);
+            if (metrics != null) {
+                metrics.recordValue(result.value, compiled - start, System.nanoTime() - compiled,
+                        program.operatorDepth, program.operandDepth);
+            }
+        }
+        clearStacks(); //To ensure that we do not have remaining data from the last line.
+        return result;
     }
 
     /**
      * Clears the stacks to ensure no garbage data remains for the next operation.
+     * The stacks keep their arrays, so no allocation happens per line.
      */
     private void clearStacks() {
-        this.Operands = new Stack<>();
-        this.Operators = new Stack<>();
+        this.Operands.clear();
+        this.Operators.clear();
     }
 
     /**
@@ -220,10 +843,91 @@ public class Solver {
     public static void testExpression(String expression) {
         Solver solver = new Solver();
         System.out.print("Expression: " + expression + " Output: ");
-        solver.solveLine(solver.formatLine(expression));
+        System.out.println(solver.solve(expression));
         System.out.println(" ");
     }
 
+    /**
+     * Evaluates an expression over random columns both column by column and row by row,
+     * checks that the results are identical and displays the time taken by each.
+     *
+     * @param expression The expression to be evaluated, its variables are given random columns.
+     * @param rows The number of rows.
+     * @return true if the results are identical, false otherwise
+     */
+    public static boolean testColumns(String expression, int rows) {
+        Solver solver = new Solver();
+        Program program = solver.compile(expression, true);
+        solver.clearStacks();
+        if (program.error != null) {
+            System.out.println("Expression: " + expression + " Output: " + program.error.getMessage());
+            return false;
+        }
+        Random random = new Random(42);
+        Map<String, double[]> columns = new HashMap<>();
+        double[][] inputs = new double[program.variables.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = new double[rows];
+            for (int row = 0; row < rows; row++) {
+                inputs[i][row] = random.nextDouble() * 200 - 100;
+            }
+            columns.put(program.variables[i], inputs[i]);
+        }
+
+        long start = System.nanoTime();
+        double[] result = solver.evaluateColumns(expression, columns);
+        long columnTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        double[] expected = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            expected[row] = solver.evaluate(program, inputs, row);
+        }
+        long rowTime = System.nanoTime() - start;
+
+        boolean passed = Arrays.equals(result, expected);
+        System.out.printf("Expression: %s over %d rows: columns %.1f ms, rows %.1f ms. %s%n", expression, rows,
+                columnTime / 1e6, rowTime / 1e6, passed ? "Passed." : "Failed.");
+        return passed;
+    }
+
+    /**
+     * Solves lines containing each type of error with metrics enabled, checks the typed results,
+     * the error counts and line numbers and the deepest stacks recorded, and displays the metrics.
+     *
+     * @return true if every check passes, false otherwise
+     */
+    public static boolean testMetrics() {
+        String[] lines = {"1 + 2", "", "3 4", "1 + * 2", "x + 1", "5 -", "1 - 2 * 3 / 4 + 5", "1 / 0", "3 4",
+            ".", "1 + .", "\u0663 + 1"};
+        ErrorType[] expected = {null, ErrorType.EMPTY_LINE, ErrorType.UNEXPECTED_NUMBER, ErrorType.UNEXPECTED_OPERATOR,
+            ErrorType.INVALID_TOKEN, ErrorType.MISSING_OPERAND, null, null, ErrorType.UNEXPECTED_NUMBER,
+            ErrorType.INVALID_TOKEN, ErrorType.INVALID_TOKEN, ErrorType.INVALID_TOKEN};
+        Solver solver = new Solver();
+        SolverMetrics metrics = solver.enableMetrics();
+        boolean passed = true;
+        for (int i = 0; i < lines.length; i++) {
+            Result result = solver.solve(lines[i]);
+            passed &= result.getError() == expected[i] && result.isError() == (expected[i] != null);
+        }
+        passed &= solver.solve("1 + 2").getValue() == 3.0;
+        metrics.finish();
+
+        passed &= metrics.getLines() == lines.length + 1 && metrics.getErrors() == 9 && metrics.getNonFinite() == 1;
+        passed &= Arrays.equals(metrics.getErrorLines(ErrorType.UNEXPECTED_NUMBER), new long[]{3, 9});
+        passed &= Arrays.equals(metrics.getErrorLines(ErrorType.MISSING_OPERAND), new long[]{6});
+        passed &= metrics.getMaxOperatorDepth() == 2 && metrics.getMaxOperandDepth() == 3;
+
+        SolverMetrics merged = new SolverMetrics();
+        merged.merge(metrics);
+        merged.merge(metrics);
+        passed &= merged.getErrorCount(ErrorType.UNEXPECTED_NUMBER) == 4
+                && Arrays.equals(merged.getErrorLines(ErrorType.UNEXPECTED_NUMBER), new long[]{3, 3, 9, 9});
+
+        System.out.print(metrics);
+        System.out.println("Metrics: " + (passed ? "Passed." : "Failed."));
+        return passed;
+    }
+
     /**
      * Reads each line of the specified file and displays the output of each line.
      *
@@ -234,9 +938,7 @@ public class Solver {
 
         try (Scanner reader = new Scanner(file)) {
             while (reader.hasNextLine()) {
-                String line = formatLine(reader.nextLine()); //Reads the next line and formats it.
-                solveLine(line);
-                clearStacks(); //To ensure that we do not have remaining data from the last line.
+                System.out.println(solve(reader.nextLine())); //Reads the next line and displays its output.
             }
         } catch (FileNotFoundException e) {
             System.out.println("Error: File not found.");
@@ -244,6 +946,243 @@ public class Solver {
         }
     }
 
+    /**
+     * Solves the lines of a file on a pool of worker threads and writes their outputs in input order.
+     * The file is read in chunks of lines, each chunk is solved by a worker with its own solver,
+     * and at most two chunks per worker are in flight so memory stays bounded however large the file is.
+     * Lines are split like BufferedReader.readLine() does.
+     * The metrics of the workers are merged and reported to the error stream.
+     *
+     * @param filePath The path of the file.
+     * @param outputPath The path of the file to write the outputs to, or null to write them to the console.
+     * @param threads The number of worker threads.
+     * @return The metrics of the run, or null if the file could not be read or the outputs written.
+     */
+    public static SolverMetrics processBatch(String filePath, String outputPath, int threads) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<SolverMetrics> workerMetrics = Collections.synchronizedList(new ArrayList<>());
+        ThreadLocal<Solver> solvers = ThreadLocal.withInitial(() -> {
+            Solver solver = new Solver();
+            workerMetrics.add(solver.enableMetrics());
+            return solver;
+        });
+        Queue<Future<String[]>> pending = new ArrayDeque<>();
+        SolverMetrics metrics = new SolverMetrics();
+        long lines = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath), 1 << 16);
+             Writer file = outputPath == null ? null : new BufferedWriter(new FileWriter(outputPath), 1 << 16)) {
+            // The console is flushed rather than closed, so the process can still print afterwards
+            Writer writer = file != null ? file : new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+            String[] chunk = new String[BATCH_CHUNK_LINES];
+            int size = 0;
+            String line = reader.readLine();
+            while (line != null) {
+                chunk[size++] = line;
+                lines++;
+                line = reader.readLine();
+                if (size == chunk.length || line == null) {
+                    String[] input = Arrays.copyOf(chunk, size);
+                    long firstLine = lines - size + 1;
+                    pending.add(pool.submit(() -> {
+                        Solver solver = solvers.get();
+                        for (int i = 0; i < input.length; i++) {
+                            input[i] = solver.solve(input[i], firstLine + i).toString();
+                        }
+                        return input;
+                    }));
+                    size = 0;
+                    while (pending.size() >= threads * 2) { // Waits for the oldest chunk to bound memory
+                        writeChunk(writer, pending.remove().get());
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeChunk(writer, pending.remove().get());
+            }
+            writer.flush();
+
+            metrics.finish();
+            for (SolverMetrics worker : workerMetrics) {
+                metrics.merge(worker);
+            }
+            System.err.printf("Solved on %d thread(s)%n", threads);
+            System.err.print(metrics);
+            return metrics;
+        } catch (FileNotFoundException e) {
+            System.out.println("Error: File not found.");
+            e.printStackTrace();
+        } catch (IOException e) {
+            System.out.println("Error: an IO exception has occurred.");
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return null;
+    }
+
+    /**
+     * Writes the outputs of a chunk of lines, one per line.
+     *
+     * @param writer The writer to write to.
+     * @param outputs The outputs to write.
+     * @throws IOException If the outputs cannot be written.
+     */
+    private static void writeChunk(Writer writer, String[] outputs) throws IOException {
+        for (String output : outputs) {
+            writer.write(output);
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    /**
+     * Solves the lines of a file of any size in bounded memory and writes their outputs in order.
+     * The file is read through a channel in large buffers and each line is tokenized straight from the bytes read,
+     * without creating a String or a program per line, and the outputs are written to an output channel.
+     * Lines are split like BufferedReader.readLine() does. Unlike process(), a missing file is reported
+     * rather than created. The metrics of the run are reported to the error stream.
+     *
+     * @param filePath The path of the file.
+     * @param outputPath The path of the file to write the outputs to, or null to write them to the console.
+     * @return The metrics of the run, or null if the file could not be read or the outputs written.
+     */
+    public static SolverMetrics processStream(String filePath, String outputPath) {
+        Solver solver = new Solver();
+        SolverMetrics metrics = solver.enableMetrics();
+        try (FileChannel in = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+             FileChannel file = outputPath == null ? null : FileChannel.open(Path.of(outputPath),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The console is flushed rather than closed, so the process can still print afterwards
+            WritableByteChannel out = file != null ? file : Channels.newChannel(System.out);
+            solver.solveChannel(in, out);
+            System.out.flush();
+            metrics.finish();
+            System.err.printf("Streamed %.1f MB/s%n", in.size() / (metrics.getElapsedNanos() / 1e9) / 1e6);
+            System.err.print(metrics);
+            return metrics;
+        } catch (NoSuchFileException e) {
+            System.out.println("Error: File not found.");
+            e.printStackTrace();
+        } catch (IOException e) {
+            System.out.println("Error: an IO exception has occurred.");
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Solves every line read from a channel and writes the output of each line to another channel.
+     *
+     * @param in The channel the lines are read from.
+     * @param out The channel the outputs are written to.
+     * @return The number of lines solved.
+     * @throws IOException If reading or writing fails.
+     */
+    private long solveChannel(FileChannel in, WritableByteChannel out) throws IOException {
+        byte[] bytes = new byte[STREAM_BUFFER_SIZE];
+        ByteBuffer input = ByteBuffer.wrap(bytes);
+        ByteBuffer output = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+        StringBuilder result = new StringBuilder();
+        long lines = 0;
+        int len = 0; // Length of the line read so far into lineBuffer
+        boolean ascii = true; // True if the line read so far is plain ASCII
+        boolean afterCarriageReturn = false; // True if the last byte ended a line with '\r'
+
+        int read;
+        while ((read = in.read(input.clear())) != -1) {
+            for (int i = 0; i < read; i++) {
+                byte b = bytes[i];
+                if (b == '\n' || b == '\r') {
+                    if (b == '\n' && afterCarriageReturn) { // The '\n' of a "\r\n" line ending
+                        afterCarriageReturn = false;
+                        continue;
+                    }
+                    afterCarriageReturn = b == '\r';
+                    solveBuffered(len, ascii, ++lines, result, output, out);
+                    len = 0;
+                    ascii = true;
+                } else {
+                    afterCarriageReturn = false;
+                    if (len == lineBuffer.length) {
+                        lineBuffer = Arrays.copyOf(lineBuffer, len * 2);
+                    }
+                    lineBuffer[len++] = (char) (b & 0xFF);
+                    ascii &= b >= 0;
+                }
+            }
+        }
+        if (len > 0) { // The last line has no line ending
+            solveBuffered(len, ascii, ++lines, result, output, out);
+        }
+        output.flip();
+        while (output.hasRemaining()) {
+            out.write(output);
+        }
+        return lines;
+    }
+
+    /**
+     * Solves the line held in lineBuffer and appends its output to the output buffer,
+     * writing the buffer to the channel when it is full. The line is recorded in the metrics, if enabled.
+     *
+     * @param len The length of the line.
+     * @param ascii True if the line is plain ASCII, false if it holds bytes to be decoded.
+     * @param lineNumber The number of the line, which errors are recorded with.
+     * @param result Scratch space the output is formatted into.
+     * @param output The buffer of outputs not yet written.
+     * @param out The channel the outputs are written to.
+     * @throws IOException If writing fails.
+     */
+    private void solveBuffered(int len, boolean ascii, long lineNumber, StringBuilder result, ByteBuffer output,
+                               WritableByteChannel out) throws IOException {
+        if (!ascii) { // Decodes the line like Scanner does, the buffer holds one raw byte per char
+            byte[] raw = new byte[len];
+            for (int i = 0; i < len; i++) {
+                raw[i] = (byte) lineBuffer[i];
+            }
+            String line = new String(raw, Charset.defaultCharset());
+            len = line.length();
+            line.getChars(0, len, lineBuffer, 0);
+        }
+
+        long start = metrics == null ? 0 : System.nanoTime();
+        ErrorType error = compileBuffer(lineBuffer, len, false);
+        result.setLength(0);
+        if (error != null) {
+            result.append(error.getMessage());
+            if (metrics != null) {
+                metrics.recordError(lineNumber, error, System.nanoTime() - start);
+            }
+        } else {
+            long compiled = metrics == null ? 0 : System.nanoTime();
+            double value = evaluate(opBuffer, opCount, constantBuffer, loadBuffer, null, 0);
+            result.append(value);
+            if (metrics != null) {
+                metrics.recordValue(value, compiled - start, System.nanoTime() - compiled, operatorDepth, operandDepth);
+            }
+        }
+        result.append(System.lineSeparator());
+        clearStacks(); //To ensure that we do not have remaining data from the last line.
+
+        if (output.remaining() < result.length()) {
+            output.flip();
+            while (output.hasRemaining()) {
+                out.write(output);
+            }
+            output.clear();
+        }
+        for (int i = 0; i < result.length(); i++) { // Outputs are plain ASCII
+            output.put((byte) result.charAt(i));
+        }
+    }
+
     /**
      * Processes the lines of a given file.
      *
@@ -262,11 +1201,37 @@ public class Solver {
     }
 
     /**
-     * Demonstrates how to use this class.
+     * Demonstrates how to use this class, or runs the self-tests when given --test.
+     * Usage: Solver [--metrics | --stream [OUTPUT] | --batch [OUTPUT] | --test]
      *
      * @param args Arguments.
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--test")) { // Compares column and row evaluation over a million rows
+            Solver.testColumns("a * b + c / 2 - a", 1_000_000);
+            Solver.testColumns("a + b * c + 2 * d", 1_000_000); // A scalar pushed where a temporary column was
+            Solver.testColumns("a*b+c*d+2*a", 1_000_000);
+            Solver.testColumns("2 * 3 - a / 4 + 5 * 6", 1_000_000);
+            Solver.testMetrics();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--metrics")) {
+            Solver solver = new Solver();
+            SolverMetrics metrics = solver.enableMetrics();
+            solver.process();
+            metrics.finish();
+            System.err.print(metrics);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--stream")) {
+            Solver.processStream("infix.txt", args.length > 1 ? args[1] : null);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            Solver.processBatch("infix.txt", args.length > 1 ? args[1] : null,
+                    Runtime.getRuntime().availableProcessors());
+            return;
+        }
         Solver solver = new Solver();
         solver.process();
         Solver.testExpression("-1");
@@ -0,0 +1,288 @@
+import java.util.Arrays;
+
+/**
+ * Collects the metrics of a Solver run: lines solved, throughput, histograms of the time spent compiling
+ * and evaluating each line, errors by type with the lines they occurred on, and the deepest operator
+ * and operand stacks reached. Recording a line is a few array updates, so metrics can stay enabled
+ * on large files. The metrics of several solvers, such as the workers of a batch run, can be merged.
+ *
+ * Times are kept in histograms with one bucket per power of two nanoseconds,
+ * so percentiles are reported as the upper bound of their bucket.
+ */
+public class SolverMetrics {
+    private static final int BUCKETS = 40; // Bucket i counts times from 2^i up to 2^(i + 1) nanoseconds
+    private static final int MAX_ERROR_LINES = 100; // Number of line numbers kept per error type
+
+    private final long startTime; // The time the metrics were created, in nanoseconds
+    private long elapsed; // The duration of the run in nanoseconds, or -1 if it is not finished
+    private long lines; // Number of lines solved
+    private long nonFinite; // Number of valid lines whose value is infinite or NaN, such as a division by zero
+    private final long[] parseTimes; // Histogram of the time taken to compile a line, errors included
+    private final long[] evalTimes; // Histogram of the time taken to evaluate a valid line
+    private final long[] errorCounts; // Number of lines with each type of error, by ordinal
+    private final long[][] errorLines; // The earliest line numbers of each type of error, ascending
+    private int maxOperatorDepth; // The most operators held by the operator stack at once
+    private int maxOperandDepth; // The most operands held by the operand stack at once
+
+    /**
+     * Constructs empty metrics and starts timing the run.
+     */
+    public SolverMetrics() {
+        this.startTime = System.nanoTime();
+        this.elapsed = -1;
+        this.parseTimes = new long[BUCKETS];
+        this.evalTimes = new long[BUCKETS];
+        this.errorCounts = new long[Solver.ErrorType.values().length];
+        this.errorLines = new long[errorCounts.length][MAX_ERROR_LINES];
+    }
+
+    /**
+     * Records a valid line.
+     *
+     * @param value The value of the line.
+     * @param parseTime The time taken to compile the line, in nanoseconds.
+     * @param evalTime The time taken to evaluate the line, in nanoseconds.
+     * @param operatorDepth The most operators the line held on the operator stack at once.
+     * @param operandDepth The most operands the line held on the operand stack at once.
+     */
+    public void recordValue(double value, long parseTime, long evalTime, int operatorDepth, int operandDepth) {
+        lines++;
+        if (!Double.isFinite(value)) {
+            nonFinite++;
+        }
+        parseTimes[bucket(parseTime)]++;
+        evalTimes[bucket(evalTime)]++;
+        maxOperatorDepth = Math.max(maxOperatorDepth, operatorDepth);
+        maxOperandDepth = Math.max(maxOperandDepth, operandDepth);
+    }
+
+    /**
+     * Records a line containing a syntax error.
+     *
+     * @param lineNumber The number of the line, starting at 1.
+     * @param error The type of the error.
+     * @param parseTime The time taken to compile the line, in nanoseconds.
+     */
+    public void recordError(long lineNumber, Solver.ErrorType error, long parseTime) {
+        lines++;
+        parseTimes[bucket(parseTime)]++;
+        int type = error.ordinal();
+        if (errorCounts[type] < MAX_ERROR_LINES) {
+            errorLines[type][(int) errorCounts[type]] = lineNumber;
+        }
+        errorCounts[type]++;
+    }
+
+    /**
+     * Adds the metrics of another run, such as another worker of the same batch run.
+     * The duration of this run is kept.
+     *
+     * @param other The metrics to add.
+     */
+    public void merge(SolverMetrics other) {
+        lines += other.lines;
+        nonFinite += other.nonFinite;
+        for (int i = 0; i < BUCKETS; i++) {
+            parseTimes[i] += other.parseTimes[i];
+            evalTimes[i] += other.evalTimes[i];
+        }
+        for (int type = 0; type < errorCounts.length; type++) {
+            int kept = keptLines(errorCounts[type]);
+            int otherKept = keptLines(other.errorCounts[type]);
+            long[] merged = Arrays.copyOf(errorLines[type], kept + otherKept);
+            System.arraycopy(other.errorLines[type], 0, merged, kept, otherKept);
+            Arrays.sort(merged); // Each side holds its earliest lines, so the earliest of both are among them
+            System.arraycopy(merged, 0, errorLines[type], 0, Math.min(merged.length, MAX_ERROR_LINES));
+            errorCounts[type] += other.errorCounts[type];
+        }
+        maxOperatorDepth = Math.max(maxOperatorDepth, other.maxOperatorDepth);
+        maxOperandDepth = Math.max(maxOperandDepth, other.maxOperandDepth);
+    }
+
+    /**
+     * Stops timing the run.
+     */
+    public void finish() {
+        elapsed = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Returns the number of lines solved.
+     *
+     * @return The number of lines, valid or not.
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * Returns the duration of the run, up to now if it is not finished.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsed >= 0 ? elapsed : System.nanoTime() - startTime;
+    }
+
+    /**
+     * Returns the number of lines solved per second of the run.
+     *
+     * @return The throughput of the run.
+     */
+    public double getLinesPerSecond() {
+        return lines / (getElapsedNanos() / 1e9);
+    }
+
+    /**
+     * Returns the number of lines containing a syntax error.
+     *
+     * @return The number of lines with an error of any type.
+     */
+    public long getErrors() {
+        long errors = 0;
+        for (long count : errorCounts) {
+            errors += count;
+        }
+        return errors;
+    }
+
+    /**
+     * Returns the number of lines containing the given type of error.
+     *
+     * @param error The type of error.
+     * @return The number of lines with that error.
+     */
+    public long getErrorCount(Solver.ErrorType error) {
+        return errorCounts[error.ordinal()];
+    }
+
+    /**
+     * Returns the numbers of the earliest lines containing the given type of error, up to a hundred.
+     *
+     * @param error The type of error.
+     * @return The line numbers, starting at 1, in ascending order.
+     */
+    public long[] getErrorLines(Solver.ErrorType error) {
+        return Arrays.copyOf(errorLines[error.ordinal()], keptLines(errorCounts[error.ordinal()]));
+    }
+
+    /**
+     * Returns the number of valid lines whose value is infinite or NaN.
+     *
+     * @return The number of such lines.
+     */
+    public long getNonFinite() {
+        return nonFinite;
+    }
+
+    /**
+     * Returns the most operators held by the operator stack at once while compiling a valid line.
+     *
+     * @return The maximum operator stack depth.
+     */
+    public int getMaxOperatorDepth() {
+        return maxOperatorDepth;
+    }
+
+    /**
+     * Returns the most operands held by the operand stack at once while evaluating a valid line.
+     *
+     * @return The maximum operand stack depth.
+     */
+    public int getMaxOperandDepth() {
+        return maxOperandDepth;
+    }
+
+    /**
+     * Returns a percentile of the time taken to compile a line.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The upper bound of the time in nanoseconds, or 0 if no line was solved.
+     */
+    public long getParsePercentile(double percentile) {
+        return percentile(parseTimes, percentile);
+    }
+
+    /**
+     * Returns a percentile of the time taken to evaluate a valid line.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The upper bound of the time in nanoseconds, or 0 if no valid line was solved.
+     */
+    public long getEvalPercentile(double percentile) {
+        return percentile(evalTimes, percentile);
+    }
+
+    /**
+     * Returns the number of line numbers kept for a type of error.
+     *
+     * @param count The number of lines with that error.
+     * @return The number of line numbers kept.
+     */
+    private static int keptLines(long count) {
+        return (int) Math.min(count, MAX_ERROR_LINES);
+    }
+
+    /**
+     * Returns the bucket a time falls into.
+     *
+     * @param nanos The time in nanoseconds.
+     * @return The index of the bucket.
+     */
+    private static int bucket(long nanos) {
+        return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+    }
+
+    /**
+     * Returns a percentile of a histogram.
+     *
+     * @param histogram The histogram.
+     * @param percentile The percentile, between 0 and 100.
+     * @return The upper bound of the bucket holding the percentile, or 0 if the histogram is empty.
+     */
+    private static long percentile(long[] histogram, double percentile) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= Math.max(rank, 1)) {
+                return 2L << i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a report of the metrics, one topic per line.
+     *
+     * @return The report.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Lines: %d in %.3f s (%.0f lines/s), %d errors, %d infinite or NaN%n",
+                lines, getElapsedNanos() / 1e9, getLinesPerSecond(), getErrors(), nonFinite));
+        report.append(String.format("Parse time: p50 < %d ns, p99 < %d ns, max < %d ns%n",
+                getParsePercentile(50), getParsePercentile(99), getParsePercentile(100)));
+        report.append(String.format("Eval time: p50 < %d ns, p99 < %d ns, max < %d ns%n",
+                getEvalPercentile(50), getEvalPercentile(99), getEvalPercentile(100)));
+        report.append(String.format("Max stack depth: %d operators, %d operands%n", maxOperatorDepth, maxOperandDepth));
+        for (Solver.ErrorType error : Solver.ErrorType.values()) {
+            long count = errorCounts[error.ordinal()];
+            if (count > 0) {
+                long[] at = errorLines[error.ordinal()];
+                StringBuilder numbers = new StringBuilder();
+                for (int i = 0; i < Math.min(count, 10); i++) {
+                    numbers.append(i == 0 ? "" : ", ").append(at[i]);
+                }
+                report.append(String.format("%s: %d, first at %s %s%s%n",
+                        error, count, count == 1 ? "line" : "lines", numbers, count > 10 ? ", ..." : ""));
+            }
+        }
+        return report.toString();
+    }
+}
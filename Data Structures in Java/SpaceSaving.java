@@ -0,0 +1,188 @@
+/**
+ * Represents a Space-Saving summary, which tracks the most frequent words in a fixed number of slots.
+ * When every slot is taken, a new word replaces the word with the lowest count and inherits that count.
+ * Every word occurring more than N / capacity times is guaranteed to be tracked, where N is the total
+ * number of words counted, and a tracked count overestimates the true count by at most N / capacity.
+ */
+public class SpaceSaving {
+    private final String[] words; // The tracked word of each slot
+    private final int[] hashes; // The hash of the word of each slot
+    private final int[] counts; // The count of each slot, never below the true count of its word
+    private final int[] errors; // The count each slot inherited when its word was assigned to it
+    private final int[] index; // Open-addressing index, holds slot + 1 or 0 if the index entry is empty
+    private final FrequencyBuckets ranking; // Ranking of the slots by count
+    private int size; // Number of slots in use
+
+    /**
+     * Constructs an empty summary.
+     *
+     * @param capacity The number of words that can be tracked.
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.words = new String[capacity];
+        this.hashes = new int[capacity];
+        this.counts = new int[capacity];
+        this.errors = new int[capacity];
+        this.index = new int[Integer.highestOneBit(capacity) << 2];
+        this.ranking = new FrequencyBuckets();
+        this.size = 0;
+    }
+
+    /**
+     * Counts one occurrence of the word held in the first len characters of the buffer.
+     *
+     * @param buf The buffer containing the word.
+     * @param len The length of the word.
+     * @param hash The hash of the word, computed the same way as String.hashCode().
+     */
+    public void add(char[] buf, int len, int hash) {
+        int mask = index.length - 1;
+        int pos = spread(hash) & mask;
+        int entry;
+        while ((entry = index[pos]) != 0) {
+            int slot = entry - 1;
+            if (hashes[slot] == hash && matches(words[slot], buf, len)) {
+                counts[slot]++;
+                ranking.update(slot, counts[slot] - 1, counts[slot]);
+                return;
+            }
+            pos = (pos + 1) & mask;
+        }
+
+        int slot;
+        if (size < words.length) {
+            slot = size++;
+            counts[slot] = 0;
+        } else {
+            slot = ranking.lowest(); // Evict the word with the lowest count
+            remove(slot);
+            pos = spread(hash) & mask;
+            while (index[pos] != 0) {
+                pos = (pos + 1) & mask;
+            }
+        }
+        words[slot] = new String(buf, 0, len);
+        hashes[slot] = hash;
+        errors[slot] = counts[slot];
+        counts[slot]++;
+        index[pos] = slot + 1;
+        ranking.update(slot, counts[slot] - 1, counts[slot]);
+    }
+
+    /**
+     * Returns the tracked count of a word.
+     *
+     * @param word The word to look up.
+     * @return the count of the word, or 0 if the word is not tracked
+     */
+    public int getCount(String word) {
+        int slot = find(word);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * Returns the maximum overestimate of the tracked count of a word.
+     *
+     * @param word The word to look up.
+     * @return the count the word inherited when it started being tracked, or 0 if the word is not tracked
+     */
+    public int getError(String word) {
+        int slot = find(word);
+        return slot < 0 ? 0 : errors[slot];
+    }
+
+    /**
+     * Returns the tracked words with the highest counts, ties broken by slot, lowest first.
+     * The slots are numbered in the order they were first filled, and a word that evicts another
+     * takes over that word's slot, so among equal counts it ranks where the evicted word did.
+     *
+     * @param k The maximum number of words to return.
+     * @return at most k words, most frequent first
+     */
+    public String[] mostFrequent(int k) {
+        int[] slots = ranking.highest(Math.min(k, size)); // The ranking allocates k entries up front
+        String[] result = new String[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            result[i] = words[slots[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the slot tracking a word.
+     *
+     * @param word The word to look up.
+     * @return the slot of the word, or -1 if the word is not tracked
+     */
+    private int find(String word) {
+        int hash = word.hashCode();
+        int mask = index.length - 1;
+        int pos = spread(hash) & mask;
+        int entry;
+        while ((entry = index[pos]) != 0) {
+            int slot = entry - 1;
+            if (hashes[slot] == hash && words[slot].equals(word)) {
+                return slot;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the word of a slot from the index, shifting back the entries that probed past it.
+     *
+     * @param slot The slot whose word is removed.
+     */
+    private void remove(int slot) {
+        int mask = index.length - 1;
+        int pos = spread(hashes[slot]) & mask;
+        while (index[pos] != slot + 1) {
+            pos = (pos + 1) & mask;
+        }
+        int next = (pos + 1) & mask;
+        while (index[next] != 0) {
+            int home = spread(hashes[index[next] - 1]) & mask;
+            // Move the entry back if its home position is not between the hole and its current position
+            if (((next - home) & mask) >= ((next - pos) & mask)) {
+                index[pos] = index[next];
+                pos = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index[pos] = 0;
+    }
+
+    /**
+     * Checks if a tracked word is equal to the first len characters of the buffer.
+     *
+     * @param word The tracked word.
+     * @param buf The buffer to compare against.
+     * @param len The number of characters to compare.
+     * @return true if they are equal, false otherwise
+     */
+    private static boolean matches(String word, char[] buf, int len) {
+        if (word.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (word.charAt(i) != buf[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mixes the high bits of a hash into the low bits used for index selection.
+     *
+     * @param hash The hash to spread.
+     * @return the spread hash
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
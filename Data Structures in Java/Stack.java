@@ -1,65 +1,40 @@
 // Made by Emin Salih Açıkgöz. Student ID: 22050111032
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
 /**
- * Represents a stack.
+ * Represents a stack backed by a growable array.
+ * Null values are ignored by push, so pop and peek only return null when the stack is empty.
  *
  * @param <E> the type of elements in the stack
  */
-public class Stack<E> {
-
-    /**
-     * Represents a node within the stack.
-     *
-     * @param <E> the type of element stored in the node
-     */
-    private static class Node<E> {
-        private final E val; // The payload of the node
-        private Node<E> next; // A reference to the next node
-
-        /**
-         * Constructs a new node with the given value of val.
-         *
-         * @param val the value to be stored in the node
-         */
-        private Node(E val) {
-            this.val = val;
-        }
-
-        /**
-         * Retrieves the next node.
-         *
-         * @return the next node in the stack
-         */
-        private Node<E> getNext() {
-            return this.next;
-        }
-
-        /**
-         * Sets the next node.
-         *
-         * @param next the node to be set as the next node
-         */
-        private void setNext(Node<E> next) {
-            this.next = next;
-        }
-
-        /**
-         * Retrieves the value stored in the node.
-         *
-         * @return the value stored in the node
-         */
-        private E getVal() {
-            return this.val;
-        }
-    }
+public class Stack<E> implements Iterable<E> {
+    private static final int DEFAULT_CAPACITY = 10; // The capacity of a stack constructed without one
 
-    private Node<E> top; // The top node of the stack
+    private Object[] elements; // The elements of the stack, bottom first
     private int size; // The size of the stack
 
     /**
      * Constructs an empty stack.
      */
     public Stack() {
-        this.top = null;
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty stack with the given initial capacity.
+     *
+     * @param initialCapacity the number of elements the stack can hold before it grows
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public Stack(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        this.elements = new Object[initialCapacity];
         this.size = 0;
     }
 
@@ -83,15 +58,28 @@ public class Stack<E> {
 
     /**
      * Pushes an element onto the top of the stack.
+     * The capacity is doubled when the stack is full, so pushing takes amortized constant time.
      *
      * @param val the value to be pushed onto the stack
      */
     public void push(E val) {
         if (val != null) {
-            Node<E> temp = new Node<>(val);
-            temp.setNext(this.top);
-            this.top = temp;
-            this.size++;
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, Math.max(DEFAULT_CAPACITY, size * 2));
+            }
+            elements[size++] = val;
+        }
+    }
+
+    /**
+     * Pushes every element of the given collection, in iteration order,
+     * so the last element ends up at the top of the stack.
+     *
+     * @param values the values to be pushed onto the stack
+     */
+    public void pushAll(Iterable<? extends E> values) {
+        for (E val : values) {
+            push(val);
         }
     }
 
@@ -104,13 +92,33 @@ public class Stack<E> {
         if (isEmpty()) {
             return null;
         } else {
-            Node<E> topNode = top;
-            top = top.getNext();
-            this.size--;
-            return topNode.getVal();
+            E val = elementAt(--size);
+            elements[size] = null; // Lets the popped element be garbage collected
+            return val;
         }
     }
 
+    /**
+     * Removes up to the given number of elements from the top of the stack.
+     *
+     * @param n the maximum number of elements to remove
+     * @return the removed elements in the order they were popped, top first
+     * @throws IllegalArgumentException if n is negative
+     */
+    public List<E> popN(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Illegal count: " + n);
+        }
+        int count = Math.min(n, size);
+        List<E> popped = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            popped.add(elementAt(size - 1 - i));
+        }
+        Arrays.fill(elements, size - count, size, null);
+        size -= count;
+        return popped;
+    }
+
     /**
      * Returns the element at the top of the stack without removing it.
      *
@@ -120,8 +128,52 @@ public class Stack<E> {
         if (isEmpty()) {
             return null;
         } else {
-            return top.getVal();
+            return elementAt(size - 1);
         }
     }
-}
 
+    /**
+     * Removes every element from the stack, keeping its capacity.
+     */
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Returns an iterator over the elements of the stack from top to bottom, without removing them.
+     * The stack must not be modified while it is being iterated.
+     *
+     * @return an iterator over the elements of the stack
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int next = size - 1; // The index of the next element to return
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public E next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                return elementAt(next--);
+            }
+        };
+    }
+
+    /**
+     * Retrieves the element stored at the given index.
+     *
+     * @param index the index of the element, counted from the bottom of the stack
+     * @return the element at the given index
+     */
+    @SuppressWarnings("unchecked")
+    private E elementAt(int index) {
+        return (E) elements[index];
+    }
+}
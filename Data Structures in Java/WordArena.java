@@ -0,0 +1,363 @@
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Stores words as bytes in large pages, either on the heap or off it in direct buffers.
+ * A word is stored as its length, in 7-bit groups, followed by one byte per character,
+ * and is addressed by the offset of its length, so a table of words holds a single long per word
+ * instead of a String and its array. The garbage collector sees a few hundred pages
+ * rather than millions of small objects, or none at all when the pages are off the heap.
+ *
+ * Only characters up to U+00FF can be stored, which covers the words produced by WordScanner.
+ * Words are never removed, the arena only grows.
+ */
+public class WordArena {
+    private static final int PAGE_SIZE = 1 << 20; // Size of a page, a longer word gets a page of its own
+    private static final int MAX_LENGTH_BYTES = 5; // Highest number of bytes the length of a word takes
+
+    private final boolean offHeap; // Whether the pages are direct buffers
+    private ByteBuffer[] pages; // The pages, only the last of which is being filled
+    private int pageCount; // Number of pages in use
+    private int position; // Offset of the first free byte of the last page
+    private long bytes; // Number of bytes allocated for pages
+
+    /**
+     * Constructs an empty arena.
+     *
+     * @param offHeap Whether to keep the words outside of the Java heap.
+     */
+    public WordArena(boolean offHeap) {
+        this.offHeap = offHeap;
+        this.pages = new ByteBuffer[16];
+        this.pageCount = 0;
+        this.position = 0;
+        this.bytes = 0;
+    }
+
+    /**
+     * Returns whether the words are kept outside of the Java heap.
+     *
+     * @return true if the pages are direct buffers, false otherwise
+     */
+    public boolean isOffHeap() {
+        return this.offHeap;
+    }
+
+    /**
+     * Returns the number of bytes allocated for pages.
+     *
+     * @return the size of the arena in bytes
+     */
+    public long memoryBytes() {
+        return this.bytes;
+    }
+
+    /**
+     * Stores the word held in the first len characters of the buffer.
+     *
+     * @param buf The buffer containing the word.
+     * @param len The length of the word.
+     * @return the offset of the stored word
+     * @throws IllegalArgumentException If the word has a character above U+00FF.
+     */
+    public long add(char[] buf, int len) {
+        long offset = reserve(len);
+        ByteBuffer page = pages[pageCount - 1];
+        for (int i = 0; i < len; i++) {
+            page.put(position++, latin1(buf[i]));
+        }
+        return offset;
+    }
+
+    /**
+     * Stores a word.
+     *
+     * @param word The word to store.
+     * @return the offset of the stored word
+     * @throws IllegalArgumentException If the word has a character above U+00FF.
+     */
+    public long add(String word) {
+        int len = word.length();
+        long offset = reserve(len);
+        ByteBuffer page = pages[pageCount - 1];
+        for (int i = 0; i < len; i++) {
+            page.put(position++, latin1(word.charAt(i)));
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the stored word at the given offset.
+     *
+     * @param offset The offset of the word.
+     * @return the word
+     */
+    public String get(long offset) {
+        char[] chars = new char[length(offset)];
+        getChars(offset, chars);
+        return new String(chars);
+    }
+
+    /**
+     * Returns the length of the stored word at the given offset.
+     *
+     * @param offset The offset of the word.
+     * @return the number of characters of the word
+     */
+    public int length(long offset) {
+        ByteBuffer page = pages[(int) (offset >>> 32)];
+        int at = (int) offset;
+        int len = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = page.get(at++);
+            len |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return len;
+    }
+
+    /**
+     * Copies the characters of the stored word at the given offset to the start of a buffer.
+     *
+     * @param offset The offset of the word.
+     * @param buf The buffer to copy to, at least as long as the word.
+     * @return the length of the word
+     */
+    public int getChars(long offset, char[] buf) {
+        ByteBuffer page = pages[(int) (offset >>> 32)];
+        int at = (int) offset;
+        int len = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = page.get(at++);
+            len |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        for (int i = 0; i < len; i++) {
+            buf[i] = (char) (page.get(at + i) & 0xFF);
+        }
+        return len;
+    }
+
+    /**
+     * Checks if the stored word at the given offset is equal to the first len characters of the buffer.
+     *
+     * @param offset The offset of the word.
+     * @param buf The buffer to compare against.
+     * @param len The number of characters to compare.
+     * @return true if they are equal, false otherwise
+     */
+    public boolean matches(long offset, char[] buf, int len) {
+        ByteBuffer page = pages[(int) (offset >>> 32)];
+        int at = skipLength(page, (int) offset, len);
+        if (at < 0) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if ((page.get(at + i) & 0xFF) != buf[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the stored word at the given offset is equal to a word.
+     *
+     * @param offset The offset of the stored word.
+     * @param word The word to compare against.
+     * @return true if they are equal, false otherwise
+     */
+    public boolean matches(long offset, String word) {
+        ByteBuffer page = pages[(int) (offset >>> 32)];
+        int len = word.length();
+        int at = skipLength(page, (int) offset, len);
+        if (at < 0) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if ((page.get(at + i) & 0xFF) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes room for a word of the given length and writes its length.
+     * The characters are then written from the position onward.
+     *
+     * @param len The length of the word.
+     * @return the offset of the word
+     */
+    private long reserve(int len) {
+        if (pageCount == 0 || position + MAX_LENGTH_BYTES + len > pages[pageCount - 1].capacity()) {
+            int capacity = Math.max(PAGE_SIZE, MAX_LENGTH_BYTES + len);
+            if (pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, pageCount * 2);
+            }
+            pages[pageCount++] = offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+            position = 0;
+            bytes += capacity;
+        }
+        long offset = (long) (pageCount - 1) << 32 | position;
+        ByteBuffer page = pages[pageCount - 1];
+        int remaining = len;
+        while (remaining >= 0x80) {
+            page.put(position++, (byte) (remaining & 0x7F | 0x80));
+            remaining >>>= 7;
+        }
+        page.put(position++, (byte) remaining);
+        return offset;
+    }
+
+    /**
+     * Reads the length of a stored word and compares it to the expected length.
+     *
+     * @param page The page holding the word.
+     * @param at The offset of the word in the page.
+     * @param len The expected length.
+     * @return the offset of the first character, or -1 if the lengths differ
+     */
+    private static int skipLength(ByteBuffer page, int at, int len) {
+        int stored = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = page.get(at++);
+            stored |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return stored == len ? at : -1;
+    }
+
+    /**
+     * Converts a character to the byte it is stored as.
+     *
+     * @param c The character.
+     * @return the character as a byte
+     * @throws IllegalArgumentException If the character is above U+00FF.
+     */
+    private static byte latin1(char c) {
+        if (c > 0xFF) {
+            throw new IllegalArgumentException("character U+" + Integer.toHexString(c) + " cannot be stored");
+        }
+        return (byte) c;
+    }
+
+    /**
+     * Counts synthetic distinct words twice into a word table and reports the heap it takes and the time spent
+     * in garbage collection, to compare word storage as Strings with an arena on or off the heap.
+     * Each store should be measured in a fresh JVM with the same -Xmx, one per run.
+     *
+     * @param store The word storage: "strings", "heap" or "off-heap".
+     * @param distinct The number of distinct words.
+     */
+    public static void compareStores(String store, int distinct) {
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount -= gc.getCollectionCount();
+            gcMillis -= gc.getCollectionTime();
+        }
+        long start = System.nanoTime();
+        WordTable table = switch (store) {
+            case "strings" -> new WordTable();
+            case "heap" -> new WordTable(new WordArena(false));
+            case "off-heap" -> new WordTable(new WordArena(true));
+            default -> throw new IllegalArgumentException("unknown store '" + store + "'");
+        };
+        char[] buf = new char[16];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int rank = 0; rank < distinct; rank++) {
+                int len = 0;
+                buf[len++] = 'w';
+                int r = rank;
+                do { // The characters of DataGenerator.syntheticWord(rank)
+                    buf[len++] = (char) ('a' + r % 26);
+                    r /= 26;
+                } while (r > 0);
+                int hash = 0;
+                for (int i = 0; i < len; i++) {
+                    hash = 31 * hash + buf[i];
+                }
+                table.add(buf, len, hash);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += gc.getCollectionCount();
+            gcMillis += gc.getCollectionTime();
+        }
+
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+        long direct = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                direct = pool.getMemoryUsed();
+            }
+        }
+        System.out.printf("%-8s %,d words (%s): %.1f s, heap %,d MB, direct %,d MB, %d collections taking %,d ms%n",
+                store, table.size(), table.getCount(DataGenerator.syntheticWord(distinct - 1)) == 2 ? "counts ok" : "WRONG",
+                seconds, heap >> 20, direct >> 20, gcCount, gcMillis);
+    }
+
+    /**
+     * Checks that words stored in the arena read back and compare as they were added,
+     * including a word longer than a page and one whose length takes several bytes.
+     *
+     * @param offHeap Whether to test an arena outside of the Java heap.
+     * @return true if every word reads back unchanged, false otherwise
+     */
+    public static boolean testRoundTrip(boolean offHeap) {
+        WordArena arena = new WordArena(offHeap);
+        String[] words = {"", "a", "hello", "çañü", "x".repeat(200), "y".repeat(PAGE_SIZE + 3)};
+        long[] offsets = new long[words.length * 20];
+        for (int i = 0; i < offsets.length; i++) {
+            String word = words[i % words.length];
+            offsets[i] = i % 2 == 0 ? arena.add(word) : arena.add(word.toCharArray(), word.length());
+        }
+        for (int i = 0; i < offsets.length; i++) {
+            String word = words[i % words.length];
+            String other = words[(i + 1) % words.length];
+            if (!arena.get(offsets[i]).equals(word) || arena.length(offsets[i]) != word.length()
+                    || !arena.matches(offsets[i], word)
+                    || !arena.matches(offsets[i], word.toCharArray(), word.length())
+                    || arena.matches(offsets[i], other) || arena.matches(offsets[i], word + "z")) {
+                return false;
+            }
+        }
+        try {
+            arena.add("Ā");
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Tests the arena, or measures a word store when given a store and a number of distinct words.
+     * Usage: WordArena [strings|heap|off-heap DISTINCT]
+     *
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        if (args.length >= 2) {
+            compareStores(args[0], Integer.parseInt(args[1]));
+            return;
+        }
+        System.out.println("Heap arena round trip: " + testRoundTrip(false));
+        System.out.println("Off-heap arena round trip: " + testRoundTrip(true));
+        for (String store : new String[]{"strings", "heap", "off-heap"}) {
+            compareStores(store, 1_000_000);
+        }
+    }
+}
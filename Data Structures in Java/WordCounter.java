@@ -0,0 +1,14 @@
+/**
+ * Represents a destination for the words found by a word scanner.
+ */
+public interface WordCounter {
+
+    /**
+     * Counts one occurrence of the word held in the first len characters of the buffer.
+     *
+     * @param buf The buffer containing the word.
+     * @param len The length of the word.
+     * @param hash The hash of the word, computed the same way as String.hashCode().
+     */
+    void count(char[] buf, int len, int hash);
+}
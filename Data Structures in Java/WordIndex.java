@@ -0,0 +1,86 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Represents the on-disk index of a word table, which lets a dictionary restart without re-reading its corpus.
+ * The index holds the number of bytes of the source file it covers and a checksum of the source,
+ * followed by every word with its frequency count in first-occurrence order:
+ * magic, version, covered bytes, checksum, word count, then for each word its length, its bytes and its count.
+ */
+public class WordIndex {
+    private static final int MAGIC = 0x57494458; // "WIDX"
+    private static final int VERSION = 1;
+
+    /**
+     * Writes the index of a word table, replacing any previous index atomically.
+     *
+     * @param path The path of the index file.
+     * @param table The table to write.
+     * @param covered The number of bytes of the source file the table was built from.
+     * @param checksum The checksum of the source bytes right before the covered offset, used to notice a replaced source.
+     * @throws IOException If the index cannot be written.
+     */
+    public static void write(Path path, WordTable table, long covered, long checksum) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(covered);
+            out.writeLong(checksum);
+            out.writeInt(table.size());
+            for (int i = 0; i < table.size(); i++) {
+                byte[] word = table.wordAt(i).getBytes(StandardCharsets.ISO_8859_1);
+                out.writeInt(word.length);
+                out.write(word);
+                out.writeInt(table.countAt(i));
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index by memory mapping it and adds its words to a word table.
+     * Each word is decoded into a reused character buffer and added from there,
+     * so no String is created for it unless the table keeps its words as Strings.
+     *
+     * @param path The path of the index file.
+     * @param table The table to add the words to.
+     * @return the number of bytes of the source file the index covers, and the checksum of the source
+     * @throws IOException If the index cannot be read or is not a valid index.
+     */
+    public static long[] read(Path path, WordTable table) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 28 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("not a valid word index: " + path);
+            }
+            long covered = buffer.getLong();
+            long checksum = buffer.getLong();
+            int size = buffer.getInt();
+            char[] word = new char[64];
+            for (int i = 0; i < size; i++) {
+                int length = buffer.getInt();
+                if (length > word.length) {
+                    word = new char[Math.max(length, word.length * 2)];
+                }
+                int hash = 0;
+                for (int j = 0; j < length; j++) { // The words are Latin-1, one byte per character
+                    word[j] = (char) (buffer.get() & 0xFF);
+                    hash = 31 * hash + word[j];
+                }
+                table.add(word, length, hash, buffer.getInt());
+            }
+            return new long[] {covered, checksum};
+        } catch (RuntimeException e) {
+            throw new IOException("not a valid word index: " + path, e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Represents a single-pass scanner that splits text into words and counts them in a word counter.
+ * ASCII letters are lowercased, whitespace separates words and every other character is dropped
+ * without splitting the word it appears in. Bytes are scanned as if they were decoded with an
+ * ASCII-compatible charset such as UTF-8, since multibyte sequences never contain ASCII bytes.
+ */
+public class WordScanner {
+    private final WordCounter counter; // The counter the scanned words are counted in
+    private char[] wordBuf; // Holds the lowercased letters of the word being scanned
+    private int wordLen; // Length of the word being scanned
+    private int wordHash; // Hash of the word being scanned, computed like String.hashCode()
+
+    /**
+     * Constructs a scanner that counts words in the given counter.
+     *
+     * @param counter The counter to count the scanned words in.
+     */
+    public WordScanner(WordCounter counter) {
+        this.counter = counter;
+        this.wordBuf = new char[64];
+        this.wordLen = 0;
+        this.wordHash = 0;
+    }
+
+    /**
+     * Scans every character of the given text.
+     * The word being scanned is not ended, so a caller scanning a whole line should call endWord.
+     *
+     * @param text The text to scan.
+     */
+    public void scan(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            feed(text.charAt(i));
+        }
+    }
+
+    /**
+     * Scans a range of bytes.
+     *
+     * @param bytes The array holding the bytes.
+     * @param offset The index of the first byte to scan.
+     * @param length The number of bytes to scan.
+     */
+    public void scan(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            feed((char) (bytes[i] & 0xFF));
+        }
+    }
+
+    /**
+     * Scans the remaining bytes of a buffer without changing its position.
+     *
+     * @param buffer The buffer holding the bytes.
+     */
+    public void scan(ByteBuffer buffer) {
+        int end = buffer.limit();
+        for (int i = buffer.position(); i < end; i++) {
+            feed((char) (buffer.get(i) & 0xFF));
+        }
+    }
+
+    /**
+     * Feeds a single character to the scanner.
+     *
+     * @param c The character to process.
+     */
+    public void feed(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            c += 'a' - 'A';
+        } else if (c < 'a' || c > 'z') {
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+                endWord();
+            }
+            return; // Any other character is dropped without splitting the word
+        }
+        if (wordLen == wordBuf.length) {
+            wordBuf = Arrays.copyOf(wordBuf, wordLen * 2);
+        }
+        wordBuf[wordLen++] = c;
+        wordHash = 31 * wordHash + c;
+    }
+
+    /**
+     * Counts the word being scanned, if any, and resets the scanner for the next word.
+     */
+    public void endWord() {
+        if (wordLen > 0) {
+            counter.count(wordBuf, wordLen, wordHash);
+            wordLen = 0;
+            wordHash = 0;
+        }
+    }
+}
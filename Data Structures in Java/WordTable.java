@@ -0,0 +1,374 @@
+import java.util.Arrays;
+
+/**
+ * Represents a table of words and their frequency counts.
+ * Words are stored densely in the order they were first seen, so the index of a word
+ * doubles as its first-occurrence order. Lookups go through an open-addressing index
+ * and can be performed straight from a character buffer, which means a String is only
+ * allocated the first time a word is added.
+ *
+ * The words can also be kept in a WordArena instead of as Strings, which takes a single long per word
+ * and leaves the garbage collector a few large pages to trace instead of two objects per word.
+ * Counting and lookups work the same way, and a String is only created when a word is read back.
+ */
+public class WordTable implements WordCounter {
+    private static final int DEFAULT_CAPACITY = 1024; // Initial number of word entries
+
+    private String[] words; // Words in first-occurrence order, or null if they are kept in the arena
+    private final WordArena arena; // The arena the words are kept in, or null if they are kept as Strings
+    private long[] offsets; // Offset of each word in the arena, or null if the words are kept as Strings
+    private int[] counts; // Frequency count of each word
+    private int[] hashes; // Cached hash of each word, equal to String.hashCode()
+    private int[] slots; // Open-addressing index, holds word index + 1 or 0 if the slot is empty
+    private int size; // Number of distinct words
+    private FrequencyBuckets ranking; // Ranking kept up to date as words are counted, or null if disabled
+
+    /**
+     * Constructs an empty word table.
+     */
+    public WordTable() {
+        this(null);
+    }
+
+    /**
+     * Constructs an empty word table that keeps its words in an arena.
+     *
+     * @param arena The arena to keep the words in, or null to keep them as Strings.
+     */
+    public WordTable(WordArena arena) {
+        this.arena = arena;
+        this.words = arena == null ? new String[DEFAULT_CAPACITY] : null;
+        this.offsets = arena == null ? null : new long[DEFAULT_CAPACITY];
+        this.counts = new int[DEFAULT_CAPACITY];
+        this.hashes = new int[DEFAULT_CAPACITY];
+        this.slots = new int[DEFAULT_CAPACITY * 2];
+        this.size = 0;
+        this.ranking = null;
+    }
+
+    /**
+     * Returns the number of distinct words in the table.
+     *
+     * @return the number of distinct words
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the word stored at the given index.
+     *
+     * @param index The first-occurrence index of the word.
+     * @return the word at the given index
+     */
+    public String wordAt(int index) {
+        return arena == null ? this.words[index] : arena.get(this.offsets[index]);
+    }
+
+    /**
+     * Returns the frequency count of the word stored at the given index.
+     *
+     * @param index The first-occurrence index of the word.
+     * @return the frequency count of the word
+     */
+    public int countAt(int index) {
+        return this.counts[index];
+    }
+
+    /**
+     * Starts keeping a frequency ranking of the words up to date as they are counted.
+     * The words already in the table are ranked right away.
+     */
+    public void enableRanking() {
+        if (ranking == null) {
+            ranking = new FrequencyBuckets(counts, size);
+        }
+    }
+
+    /**
+     * Returns the most frequent words, ties broken by first-occurrence order.
+     * The ranking must be enabled.
+     *
+     * @param k The maximum number of words to return.
+     * @return the indices of at most k words, most frequent first
+     */
+    public int[] mostFrequent(int k) {
+        return ranking.highest(Math.min(k, size)); // The ranking allocates k entries up front
+    }
+
+    /**
+     * Returns the least frequent words, ties broken by first-occurrence order.
+     * The ranking must be enabled.
+     *
+     * @param k The maximum number of words to return.
+     * @return the indices of at most k words, least frequent first
+     */
+    public int[] leastFrequent(int k) {
+        return ranking.lowest(Math.min(k, size)); // The ranking allocates k entries up front
+    }
+
+    /**
+     * Adds one occurrence of the word held in the first len characters of the buffer.
+     *
+     * @param buf The buffer containing the word.
+     * @param len The length of the word.
+     * @param hash The hash of the word, computed the same way as String.hashCode().
+     * @return the first-occurrence index of the word
+     */
+    public int add(char[] buf, int len, int hash) {
+        return add(buf, len, hash, 1);
+    }
+
+    /**
+     * Adds the given number of occurrences of the word held in the first len characters of the buffer.
+     *
+     * @param buf The buffer containing the word.
+     * @param len The length of the word.
+     * @param hash The hash of the word, computed the same way as String.hashCode().
+     * @param count The number of occurrences to add.
+     * @return the first-occurrence index of the word
+     */
+    public int add(char[] buf, int len, int hash, int count) {
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int index = entry - 1;
+            if (hashes[index] == hash && matches(index, buf, len)) {
+                counts[index] += count;
+                if (ranking != null) {
+                    ranking.update(index, counts[index] - count, counts[index]);
+                }
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int index = reserve();
+        if (arena == null) {
+            words[index] = new String(buf, 0, len);
+        } else {
+            offsets[index] = arena.add(buf, len);
+        }
+        return insert(index, hash, count, slot);
+    }
+
+    @Override
+    public void count(char[] buf, int len, int hash) {
+        add(buf, len, hash);
+    }
+
+    /**
+     * Adds the given number of occurrences of a word.
+     *
+     * @param word The word to add.
+     * @param count The number of occurrences to add.
+     * @return the first-occurrence index of the word
+     */
+    public int add(String word, int count) {
+        int hash = word.hashCode();
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int index = entry - 1;
+            if (hashes[index] == hash && matches(index, word)) {
+                counts[index] += count;
+                if (ranking != null) {
+                    ranking.update(index, counts[index] - count, counts[index]);
+                }
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int index = reserve();
+        if (arena == null) {
+            words[index] = word;
+        } else {
+            offsets[index] = arena.add(word);
+        }
+        return insert(index, hash, count, slot);
+    }
+
+    /**
+     * Adds every word of another table, in that table's first-occurrence order.
+     * Merging the table of an earlier part of a text with the table of a later part
+     * gives the same counts and order as scanning both parts into one table.
+     * Words kept in an arena are copied through a character buffer, without creating a String per word.
+     *
+     * @param other The table whose words are added.
+     */
+    public void addAll(WordTable other) {
+        FrequencyBuckets previous = ranking;
+        ranking = null; // Ranking every word at once is cheaper than moving each word up
+        char[] buf = new char[64];
+        for (int i = 0; i < other.size; i++) {
+            if (other.arena == null) {
+                add(other.words[i], other.counts[i]);
+            } else {
+                int len = other.arena.length(other.offsets[i]);
+                if (len > buf.length) {
+                    buf = new char[Math.max(len, buf.length * 2)];
+                }
+                other.arena.getChars(other.offsets[i], buf);
+                add(buf, len, other.hashes[i], other.counts[i]);
+            }
+        }
+        if (previous != null) {
+            enableRanking();
+        }
+    }
+
+    /**
+     * Returns the first-occurrence index of a word.
+     *
+     * @param word The word to look up.
+     * @return the index of the word, or -1 if the word is not found
+     */
+    public int indexOf(String word) {
+        int hash = word.hashCode();
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int index = entry - 1;
+            if (hashes[index] == hash && matches(index, word)) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves the frequency count of a word.
+     *
+     * @param word The word to retrieve the frequency count for.
+     * @return The frequency count of the word, or 0 if the word is not found.
+     */
+    public int getCount(String word) {
+        int index = indexOf(word);
+        return index < 0 ? 0 : counts[index];
+    }
+
+    /**
+     * Returns the index of the next new word, growing the table if needed.
+     * The caller stores the word at that index, then calls insert.
+     *
+     * @return the first-occurrence index of the next new word
+     */
+    private int reserve() {
+        if (size == counts.length) {
+            grow();
+        }
+        return size;
+    }
+
+    /**
+     * Adds the word just stored at the given index to the given empty slot.
+     *
+     * @param index The index the word was stored at, as returned by reserve.
+     * @param hash The hash of the word.
+     * @param count The initial frequency count of the word.
+     * @param slot The empty slot the word hashes to.
+     * @return the first-occurrence index of the new word
+     */
+    private int insert(int index, int hash, int count, int slot) {
+        counts[index] = count;
+        hashes[index] = hash;
+        size++;
+        if (ranking != null) {
+            ranking.update(index, 0, count);
+        }
+        if (counts.length * 2 != slots.length) {
+            rehash(); // The entry arrays grew, so the index is rebuilt at the new size
+        } else {
+            slots[slot] = index + 1;
+        }
+        return index;
+    }
+
+    /**
+     * Doubles the capacity of the entry arrays.
+     */
+    private void grow() {
+        int capacity = counts.length * 2;
+        if (arena == null) {
+            words = Arrays.copyOf(words, capacity);
+        } else {
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+        counts = Arrays.copyOf(counts, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+    }
+
+    /**
+     * Rebuilds the open-addressing index so it holds twice as many slots as there are entries.
+     */
+    private void rehash() {
+        slots = new int[counts.length * 2];
+        int mask = slots.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = spread(hashes[i]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Checks if the word stored at the given index is equal to the first len characters of the buffer.
+     *
+     * @param index The index of the stored word.
+     * @param buf The buffer to compare against.
+     * @param len The number of characters to compare.
+     * @return true if they are equal, false otherwise
+     */
+    private boolean matches(int index, char[] buf, int len) {
+        return arena == null ? matches(words[index], buf, len) : arena.matches(offsets[index], buf, len);
+    }
+
+    /**
+     * Checks if the word stored at the given index is equal to a word.
+     *
+     * @param index The index of the stored word.
+     * @param word The word to compare against.
+     * @return true if they are equal, false otherwise
+     */
+    private boolean matches(int index, String word) {
+        return arena == null ? words[index].equals(word) : arena.matches(offsets[index], word);
+    }
+
+    /**
+     * Checks if a stored word is equal to the first len characters of the buffer.
+     *
+     * @param word The stored word.
+     * @param buf The buffer to compare against.
+     * @param len The number of characters to compare.
+     * @return true if they are equal, false otherwise
+     */
+    private static boolean matches(String word, char[] buf, int len) {
+        if (word.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (word.charAt(i) != buf[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mixes every bit of a hash into the low bits used for slot selection, with the finalizer of MurmurHash3.
+     * The String hashes of similar words fall in dense runs, which linear probing would turn into long clusters.
+     *
+     * @param hash The hash to spread.
+     * @return the spread hash
+     */
+    private static int spread(int hash) {
+        hash = (hash ^ (hash >>> 16)) * 0x85EBCA6B;
+        hash = (hash ^ (hash >>> 13)) * 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+}